@@ -0,0 +1,394 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * BooleanQuery class to hold a query line with the AND, OR and NOT operators.
+ * The words next to AND, or starting with +, are required, and the words after
+ * NOT, or starting with -, are excluded. The other words are optional, OR only
+ * separates them like a space does.
+ *
+ * A location matches if it has all the required words and none of the excluded
+ * words. If there are no required words, it must have at least one of the
+ * optional words, like in a normal query. The count of a location is the number
+ * of matches of the required and optional words, so the score is the same as in
+ * a normal query.
+ *
+ * The required words are intersected starting from the word with the fewest
+ * locations, and the other words gallop to its locations. The excluded and
+ * optional words are only looked up for the locations that have all the
+ * required words.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class BooleanQuery {
+	/**
+	 * required words that every location must have
+	 */
+	private final TreeSet<String> required;
+
+	/**
+	 * optional words that add to the count
+	 */
+	private final TreeSet<String> optional;
+
+	/**
+	 * excluded words that no location may have
+	 */
+	private final TreeSet<String> excluded;
+
+	/**
+	 * Constructor. A word that is excluded is not also required or optional, and a
+	 * required word is not also optional.
+	 *
+	 * @param required words that every location must have
+	 * @param optional words that add to the count
+	 * @param excluded words that no location may have
+	 */
+	public BooleanQuery(Set<String> required, Set<String> optional, Set<String> excluded) {
+		this.excluded = new TreeSet<String>(excluded);
+		this.required = new TreeSet<String>(required);
+		this.required.removeAll(excluded);
+		this.optional = new TreeSet<String>(optional);
+		this.optional.removeAll(excluded);
+		this.optional.removeAll(required);
+	}
+
+	/**
+	 * parse method to parse a query line using the default stemmer for English
+	 *
+	 * @param line of query to parse
+	 * @return the query, or null if the line has no operator
+	 */
+	public static BooleanQuery parse(String line) {
+		return parse(line, StemCache.ENGLISH);
+	}
+
+	/**
+	 * parse method to parse a query line. The operators are only the upper case
+	 * AND, OR and NOT, in lower case they are searched as normal words.
+	 *
+	 * @param line    of query to parse
+	 * @param stemmer to stem the words with
+	 * @return the query, or null if the line has no operator
+	 */
+	public static BooleanQuery parse(String line, Stemmer stemmer) {
+		String[] tokens = FileStemmer.split(line);
+		if (!hasOperator(tokens)) {
+			return null;
+		}
+		TreeSet<String> required = new TreeSet<String>();
+		TreeSet<String> optional = new TreeSet<String>();
+		TreeSet<String> excluded = new TreeSet<String>();
+		boolean and = false;
+		boolean not = false;
+		// the stems of the last word, moved to required by a following AND
+		List<String> last = Collections.emptyList();
+		for (String token : tokens) {
+			switch (token) {
+				case "AND":
+					and = true;
+					if (optional.removeAll(last)) {
+						required.addAll(last);
+					}
+					continue;
+				case "OR":
+					continue;
+				case "NOT":
+					not = true;
+					continue;
+				default:
+					break;
+			}
+			char first = token.charAt(0);
+			List<String> stems = FileStemmer.listStems(token, stemmer);
+			if (stems.isEmpty()) {
+				continue;
+			}
+			if (not || first == '-') {
+				excluded.addAll(stems);
+				last = Collections.emptyList();
+			} else if (and || first == '+') {
+				required.addAll(stems);
+				last = Collections.emptyList();
+			} else {
+				optional.addAll(stems);
+				last = stems;
+			}
+			and = false;
+			not = false;
+		}
+		if (required.isEmpty() && optional.isEmpty() && excluded.isEmpty()) {
+			return null;
+		}
+		return new BooleanQuery(required, optional, excluded);
+	}
+
+	/**
+	 * hasOperator helper method to check if a line has an operator before
+	 * stemming it, so normal query lines are only stemmed once
+	 *
+	 * @param tokens of the line
+	 * @return true if a token is an operator or starts with + or -
+	 */
+	private static boolean hasOperator(String[] tokens) {
+		for (String token : tokens) {
+			if (token.equals("AND") || token.equals("OR") || token.equals("NOT") || token.startsWith("+")
+					|| token.startsWith("-")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * getWords method to get all words of the query
+	 *
+	 * @return sorted set of the required, optional and excluded words
+	 */
+	public Set<String> getWords() {
+		TreeSet<String> words = new TreeSet<String>(required);
+		words.addAll(optional);
+		words.addAll(excluded);
+		return words;
+	}
+
+	/**
+	 * match method to add the matches of the query. In a partial search a word
+	 * matches all the words it starts with, and a location has the word if it
+	 * has any of them.
+	 *
+	 * @param postings    to get the postings of all words that match a word of the
+	 *                    query
+	 * @param accumulator to add the count of every location found to
+	 */
+	public void match(Function<String, List<PostingsReader>> postings, ScoreAccumulator accumulator) {
+		List<Group> optionals = groups(optional, postings);
+		List<Group> exclusions = groups(excluded, postings);
+		if (required.isEmpty()) {
+			for (Group group : optionals) {
+				group.addAll(accumulator);
+			}
+			// subtract the excluded locations from the matches in place
+			for (Group group : exclusions) {
+				group.removeAll(accumulator);
+			}
+			return;
+		}
+
+		List<Group> groups = groups(required, postings);
+		for (Group group : groups) {
+			if (group.size == 0) {
+				return;
+			}
+		}
+		groups.sort(Comparator.comparingLong((Group group) -> group.size));
+		Group lead = groups.get(0);
+		int doc = lead.current;
+		while (doc != Integer.MAX_VALUE) {
+			int target = doc;
+			for (int i = 1; i < groups.size() && target == doc; i++) {
+				groups.get(i).advance(doc);
+				target = groups.get(i).current;
+			}
+			if (target == doc) {
+				if (!lead.skipped(doc) && !contains(exclusions, doc)) {
+					int count = 0;
+					for (Group group : groups) {
+						count += group.frequency();
+					}
+					for (Group group : optionals) {
+						group.advance(doc);
+						if (group.current == doc) {
+							count += group.frequency();
+						}
+					}
+					accumulator.add(doc, count);
+				}
+				target = doc + 1;
+			}
+			lead.advance(target);
+			doc = lead.current;
+		}
+	}
+
+	/**
+	 * groups helper method to get the postings of every word
+	 *
+	 * @param words    to get the postings of
+	 * @param postings to get the postings of all words that match a word
+	 * @return the postings of every word, in the order of the words
+	 */
+	private static List<Group> groups(Set<String> words, Function<String, List<PostingsReader>> postings) {
+		List<Group> groups = new ArrayList<Group>(words.size());
+		for (String word : words) {
+			groups.add(new Group(postings.apply(word)));
+		}
+		return groups;
+	}
+
+	/**
+	 * contains helper method to check if any of the words is in a location
+	 *
+	 * @param groups with the postings of the words
+	 * @param doc    the location id, not smaller than any location checked before
+	 * @return true if a word is in the location
+	 */
+	private static boolean contains(List<Group> groups, int doc) {
+		for (Group group : groups) {
+			group.advance(doc);
+			if (group.current == doc) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the query in the same form for every way of writing it, used as the
+	 *         key of the results
+	 */
+	@Override
+	public String toString() {
+		List<String> parts = new ArrayList<String>();
+		for (String word : required) {
+			parts.add("+" + word);
+		}
+		parts.addAll(optional);
+		for (String word : excluded) {
+			parts.add("-" + word);
+		}
+		return String.join(" ", parts);
+	}
+
+	/**
+	 * Group class to read the postings of all the words that match one word of
+	 * the query together, as one list of locations
+	 */
+	private static class Group {
+		/**
+		 * readers with the postings of every matching word
+		 */
+		private final PostingsReader[] readers;
+
+		/**
+		 * index of the current posting of every reader
+		 */
+		private final int[] index;
+
+		/**
+		 * size with the number of postings of all readers
+		 */
+		private final long size;
+
+		/**
+		 * current with the smallest location id of the current postings, or
+		 * {@link Integer#MAX_VALUE} if there are no more postings
+		 */
+		private int current;
+
+		/**
+		 * Constructor
+		 *
+		 * @param readers with the postings of every matching word
+		 */
+		private Group(List<PostingsReader> readers) {
+			this.readers = readers.toArray(new PostingsReader[0]);
+			this.index = new int[this.readers.length];
+			long size = 0;
+			int current = Integer.MAX_VALUE;
+			for (PostingsReader reader : this.readers) {
+				size += reader.size();
+				if (reader.size() > 0) {
+					current = Math.min(current, reader.doc(0));
+				}
+			}
+			this.size = size;
+			this.current = current;
+		}
+
+		/**
+		 * advance helper method to move every reader to its first posting with a
+		 * location id that is not smaller than a target
+		 *
+		 * @param target the location id
+		 */
+		private void advance(int target) {
+			if (current >= target) {
+				return;
+			}
+			current = Integer.MAX_VALUE;
+			for (int i = 0; i < readers.length; i++) {
+				index[i] = readers[i].gallop(index[i], target);
+				if (index[i] < readers[i].size()) {
+					current = Math.min(current, readers[i].doc(index[i]));
+				}
+			}
+		}
+
+		/**
+		 * frequency helper method to get the number of positions of the words in the
+		 * current location
+		 *
+		 * @return the number of positions
+		 */
+		private int frequency() {
+			int frequency = 0;
+			for (int i = 0; i < readers.length; i++) {
+				if (index[i] < readers[i].size() && readers[i].doc(index[i]) == current) {
+					frequency += readers[i].frequency(index[i]);
+				}
+			}
+			return frequency;
+		}
+
+		/**
+		 * skipped helper method to check if a location should be skipped
+		 *
+		 * @param doc the location id
+		 * @return true if the location is skipped
+		 */
+		private boolean skipped(int doc) {
+			return readers.length > 0 && readers[0].skipped(doc);
+		}
+
+		/**
+		 * addAll helper method to add all postings to an accumulator
+		 *
+		 * @param accumulator to add to
+		 */
+		private void addAll(ScoreAccumulator accumulator) {
+			for (PostingsReader reader : readers) {
+				for (int i = 0; i < reader.size(); i++) {
+					int doc = reader.doc(i);
+					if (!reader.skipped(doc)) {
+						accumulator.add(doc, reader.frequency(i));
+					}
+				}
+			}
+		}
+
+		/**
+		 * removeAll helper method to remove the locations of all postings from an
+		 * accumulator
+		 *
+		 * @param accumulator to remove from
+		 */
+		private void removeAll(ScoreAccumulator accumulator) {
+			for (PostingsReader reader : readers) {
+				for (int i = 0; i < reader.size(); i++) {
+					accumulator.remove(reader.doc(i));
+				}
+			}
+		}
+	}
+}
@@ -1,11 +1,16 @@
 package edu.usfca.cs272;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 /**
  * 
@@ -33,6 +38,28 @@ public class DirectoryTraverser {
 		}
 	}
 
+	/**
+	 * Traverses through the directory and its subdirectories in parallel with a
+	 * fork/join pool, where every subdirectory is listed by its own task. Every
+	 * text file is given to the consumer as soon as it is found, so the files can
+	 * be processed while the rest of the directory is still being listed.
+	 *
+	 * @param directory the directory to traverse
+	 * @param threads   the number of threads listing directories
+	 * @param files     to give every text file to, called by the listing threads
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void traverseDirectory(Path directory, int threads, Consumer<Path> files) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new Task(directory, files));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	/**
 	 * Return true if a file is a text file
 	 * 
@@ -58,4 +85,67 @@ public class DirectoryTraverser {
 		return paths;
 	}
 
+	/**
+	 * The task class that lists one directory, and forks a task for every
+	 * subdirectory. A task waits for all its subdirectories even if one fails, so
+	 * no directory is still being listed once the first task is done.
+	 */
+	private static class Task extends RecursiveAction {
+		/**
+		 * serialVersionUID for the serializable task
+		 */
+		private static final long serialVersionUID = 202301;
+
+		/**
+		 * directory to list
+		 */
+		private final Path directory;
+
+		/**
+		 * files to give every text file to
+		 */
+		private final transient Consumer<Path> files;
+
+		/**
+		 * Initializes a task
+		 *
+		 * @param directory to list
+		 * @param files     to give every text file to
+		 */
+		public Task(Path directory, Consumer<Path> files) {
+			this.directory = directory;
+			this.files = files;
+		}
+
+		@Override
+		protected void compute() {
+			ArrayList<Task> subdirectories = new ArrayList<Task>();
+			UncheckedIOException error = null;
+			try (DirectoryStream<Path> listing = Files.newDirectoryStream(directory)) {
+				for (Path path : listing) {
+					if (Files.isDirectory(path)) {
+						Task task = new Task(path, files);
+						task.fork();
+						subdirectories.add(task);
+					} else if (isTextFile(path)) {
+						files.accept(path);
+					}
+				}
+			} catch (IOException e) {
+				error = new UncheckedIOException(e);
+			} catch (DirectoryIteratorException e) {
+				error = new UncheckedIOException(e.getCause());
+			}
+
+			for (Task task : subdirectories) {
+				task.quietlyJoin();
+			}
+			if (error != null) {
+				throw error;
+			}
+			for (Task task : subdirectories) {
+				task.join();
+			}
+		}
+	}
 }
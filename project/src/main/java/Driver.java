@@ -2,6 +2,7 @@ package edu.usfca.cs272;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 
@@ -32,24 +33,55 @@ public class Driver {
 		//////////////////////////////////////////
 		ArgumentPraser flagsMap = new ArgumentPraser(args);
 		InvertedIndex invertedIndex;
-		QuerySearchInterface searchData;
+		QuerySearchInterface searchData = null;
 		WebCrawler crawler;
 		ThreadSafeInvertedIndex threadSafe = null;
+		SegmentedInvertedIndex segmented = null;
 		int threads = 5;
 		int maxLinks = 1;
 		int PORT = 8080;
+		Scorer scorer = Scorer.CURRENT;
+
+		// flag "-scorer"
+		if (flagsMap.hasFlag("-scorer")) {
+			String name = flagsMap.getString("-scorer", Scorer.CURRENT.toString());
+			if (Scorer.forName(name) != null) {
+				scorer = Scorer.forName(name);
+			} else {
+				System.out.println("unknown scorer, use one of " + Scorer.scorers().keySet());
+			}
+		}
 
 		// flag "-threads"
-		if (flagsMap.hasFlag("-threads") || flagsMap.hasFlag("-html") || flagsMap.hasFlag("-server")) {
+		if (flagsMap.hasFlag("-threads") || flagsMap.hasFlag("-html") || flagsMap.hasFlag("-server")
+				|| flagsMap.hasFlag("-shards") || flagsMap.hasFlag("-segmented") || flagsMap.hasFlag("-watch")) {
 			threads = flagsMap.getInteger("-threads", 5);
 			if (threads < 1)
 				threads = 5;
-			threadSafe = new ThreadSafeInvertedIndex();
-			searchData = new ThreadSafeQuerySearch(threadSafe, threads);
+			// flag "-shards"
+			if (flagsMap.hasFlag("-shards")) {
+				threadSafe = new ShardedInvertedIndex(flagsMap.getInteger("-shards", ShardedInvertedIndex.DEFAULT));
+			} else if (flagsMap.hasFlag("-segmented")) {
+				// flag "-segmented"
+				segmented = new SegmentedInvertedIndex(
+						flagsMap.getInteger("-segmented", SegmentedInvertedIndex.DEFAULT));
+				threadSafe = segmented;
+			} else {
+				threadSafe = new ThreadSafeInvertedIndex();
+			}
 			invertedIndex = threadSafe;
 		} else {
 			invertedIndex = new InvertedIndex();
-			searchData = new QuerySearch(invertedIndex);
+		}
+
+		// flag "-load"
+		if (flagsMap.hasFlag("-load")) {
+			Path path = flagsMap.getPath("-load", Path.of("index.bin"));
+			try {
+				invertedIndex.addAll(InvertedIndex.load(path));
+			} catch (IOException e) {
+				System.out.println("can't load the index file");
+			}
 		}
 
 		// flag "-html"
@@ -69,14 +101,73 @@ public class Driver {
 
 		}
 
+		// flag "-text
+		IndexManifest manifest = null;
+		Path manifestPath = null;
+		IndexWatcher watcher = null;
+		if (flagsMap.hasFlag("-text") && flagsMap.hasValue("-text")) {
+			Path path = flagsMap.getPath("-text");
+			// flag "-mmap" to map the files into memory instead of reading them
+			boolean mmap = flagsMap.hasFlag("-mmap");
+			// flag "-incremental" to only read the files that changed since the
+			// manifest next to the index was saved
+			if (flagsMap.hasFlag("-incremental")) {
+				Path index = flagsMap.getPath("-save", flagsMap.getPath("-load", Path.of("index.bin")));
+				manifestPath = flagsMap.getPath("-incremental", Path.of(index + ".manifest"));
+				manifest = new IndexManifest();
+				if (Files.exists(manifestPath)) {
+					try {
+						manifest = IndexManifest.load(manifestPath);
+					} catch (IOException e) {
+						System.out.println("can't load the manifest file");
+					}
+				}
+			}
+			// flag "-watch" to index the changes of the directory while it is searched,
+			// registered before the build so no change is missed
+			if (flagsMap.hasFlag("-watch") && Files.isDirectory(path)) {
+				try {
+					watcher = new IndexWatcher(path, threadSafe, threads,
+							flagsMap.getInteger("-watch", IndexWatcher.DEFAULT_DELAY));
+				} catch (IOException e) {
+					System.out.println("can't watch the directory");
+				}
+			}
+			try {
+				if (manifest != null && threadSafe != null) {
+					InvertedIndexBuilder.threadedUpdate(path, threadSafe, manifest, threads);
+				} else if (manifest != null) {
+					InvertedIndexBuilder.update(path, invertedIndex, manifest);
+				} else if (threadSafe != null) {
+					InvertedIndexBuilder.threadedBuild(path, threadSafe, threads, InvertedIndexBuilder.CHUNK_SIZE, mmap);
+				} else {
+					InvertedIndexBuilder.build(path, invertedIndex, mmap);
+				}
+			} catch (IOException e) {
+				System.out.println("can't build inverted index");
+			}
+			if (watcher != null) {
+				watcher.start();
+			}
+		}
+
+		// flag "-server", after the index is built since it serves until stopped
 		if (flagsMap.hasFlag("-server")) {
 			try {
 				PORT = flagsMap.getInteger("-server", 8080);
 				Server server = new Server(PORT);
 				ServletHandler handler = new ServletHandler();
-				handler.addServletWithMapping(new ServletHolder(new SearchServlet(threadSafe, threads)), "/search");
+				// flags "-cache" and "-cachekb" to bound the cached results
+				QueryCache cache = new QueryCache(flagsMap.getInteger("-cache", QueryCache.DEFAULT_ENTRIES),
+						flagsMap.hasFlag("-cachekb") ? flagsMap.getInteger("-cachekb", 0) * 1024L : Long.MAX_VALUE);
+				handler.addServletWithMapping(new ServletHolder(new SearchServlet(threadSafe, threads, cache)),
+						"/search");
 				handler.addServletWithMapping(new ServletHolder(new CountsServlet(threadSafe)), "/counts");
 				handler.addServletWithMapping(new ServletHolder(new IndexServlet(threadSafe)), "/index");
+				if (watcher != null) {
+					// the indexing lag of the "-watch" flag
+					handler.addServletWithMapping(new ServletHolder(new WatchServlet(watcher)), "/watch");
+				}
 				server.setHandler(handler);
 				server.start();
 				server.join();
@@ -85,17 +176,24 @@ public class Driver {
 			}
 		}
 
-		// flag "-text
-		if (flagsMap.hasFlag("-text") && flagsMap.hasValue("-text")) {
-			Path path = flagsMap.getPath("-text");
+		// flag "-save"
+		if (flagsMap.hasFlag("-save")) {
+			Path output = flagsMap.getPath("-save", Path.of("index.bin"));
 			try {
-				if (threadSafe != null) {
-					InvertedIndexBuilder.threadedBuild(path, threadSafe, threads);
-				} else {
-					InvertedIndexBuilder.build(path, invertedIndex);
-				}
+				invertedIndex.save(output);
 			} catch (IOException e) {
-				System.out.println("can't build inverted index");
+				System.out.println("can't write the index file");
+				manifest = null;
+			}
+		}
+
+		// the manifest is saved after the index, so it never has files the saved
+		// index does not
+		if (manifest != null && flagsMap.hasFlag("-save")) {
+			try {
+				manifest.save(manifestPath);
+			} catch (IOException e) {
+				System.out.println("can't write the manifest file");
 			}
 		}
 
@@ -119,6 +217,32 @@ public class Driver {
 			}
 		}
 
+		// flag "-segment"
+		IndexSearchInterface segment = null;
+		if (flagsMap.hasFlag("-segment")) {
+			Path path = flagsMap.getPath("-segment", Path.of("index.seg"));
+			try {
+				// write the segment if there is an index to write, otherwise search the
+				// segment that is already there
+				if (invertedIndex.wordsSize() > 0) {
+					invertedIndex.freeze().write(path);
+				}
+				segment = new SegmentIndex(path);
+			} catch (IOException e) {
+				System.out.println("can't process the segment file");
+			}
+		}
+
+		// the index is only read from here on, so search a frozen snapshot of it
+		if (flagsMap.hasFlag("-query") || flagsMap.hasFlag("-results")) {
+			IndexSearchInterface snapshot = segment != null ? segment : invertedIndex.freeze();
+			if (threadSafe != null) {
+				searchData = new ThreadSafeQuerySearch(snapshot, threads, scorer);
+			} else {
+				searchData = new QuerySearch(snapshot, scorer);
+			}
+		}
+
 		// flag "-query"
 		if (flagsMap.hasFlag("-query") && flagsMap.hasValue("-query")) {
 			boolean exact = !flagsMap.hasFlag("-partial");
@@ -139,5 +263,17 @@ public class Driver {
 				System.out.println("can't write into json file");
 			}
 		}
+
+		if (watcher != null) {
+			try {
+				watcher.close();
+				System.out.println("index watcher: " + watcher);
+			} catch (IOException e) {
+				System.out.println("can't stop watching the directory");
+			}
+		}
+		if (segmented != null) {
+			segmented.close();
+		}
 	}
 }
@@ -14,8 +14,6 @@ import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import opennlp.tools.stemmer.Stemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
 
 /**
  * Utility class for parsing, cleaning, and stemming text and text files into
@@ -77,14 +75,12 @@ public class FileStemmer {
 	 * @param stemmer the stemmer to use
 	 * @param stems   the collection to add stems
 	 *
-	 * @see #parse(String)
+	 * @see Tokenizer#tokenize(CharSequence, int, Tokenizer.TokenConsumer)
 	 * @see Stemmer#stem(CharSequence)
 	 * @see Collection#add(Object)
 	 */
 	public static void addStems(String line, Stemmer stemmer, Collection<String> stems) {
-		String[] splitted = parse(line);
-		for (String word : splitted)
-			stems.add((stemmer.stem(word)).toString());
+		Tokenizer.tokenize(line, 0, (word, position) -> stems.add(stemmer.stem(word).toString()));
 	}
 
 	/**
@@ -111,12 +107,11 @@ public class FileStemmer {
 	 * @param line the line of words to parse and stem
 	 * @return a list of cleaned and stemmed words in parsed order
 	 *
-	 * @see SnowballStemmer#SnowballStemmer(ALGORITHM)
-	 * @see ALGORITHM#ENGLISH
+	 * @see StemCache#ENGLISH
 	 * @see #listStems(String, Stemmer)
 	 */
 	public static ArrayList<String> listStems(String line) {
-		SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+		Stemmer stemmer = StemCache.ENGLISH;
 		return listStems(line, stemmer);
 	}
 
@@ -128,15 +123,14 @@ public class FileStemmer {
 	 * @return a list of stems from file in parsed order
 	 * @throws IOException if unable to read or parse file
 	 *
-	 * @see SnowballStemmer
-	 * @see ALGORITHM#ENGLISH
+	 * @see StemCache#ENGLISH
 	 * @see StandardCharsets#UTF_8
 	 * @see #listStems(String, Stemmer)
 	 */
 	public static ArrayList<String> listStems(Path input) throws IOException {
 		try (BufferedReader reader = Files.newBufferedReader(input, UTF_8);) {
 			ArrayList<String> stems = new ArrayList<String>();
-			SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+			Stemmer stemmer = StemCache.ENGLISH;
 			String line = null;
 			while ((line = reader.readLine()) != null) {
 				addStems(line, stemmer, stems);
@@ -169,12 +163,11 @@ public class FileStemmer {
 	 * @param line the line of words to parse and stem
 	 * @return a sorted set of unique cleaned and stemmed words
 	 *
-	 * @see SnowballStemmer#SnowballStemmer(ALGORITHM)
-	 * @see ALGORITHM#ENGLISH
+	 * @see StemCache#ENGLISH
 	 * @see #uniqueStems(String, Stemmer)
 	 */
 	public static TreeSet<String> uniqueStems(String line) {
-		SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+		Stemmer stemmer = StemCache.ENGLISH;
 		return uniqueStems(line, stemmer);
 	}
 
@@ -186,15 +179,14 @@ public class FileStemmer {
 	 * @return a sorted set of unique cleaned and stemmed words from file
 	 * @throws IOException if unable to read or parse file
 	 *
-	 * @see SnowballStemmer
-	 * @see ALGORITHM#ENGLISH
+	 * @see StemCache#ENGLISH
 	 * @see StandardCharsets#UTF_8
 	 * @see #uniqueStems(String, Stemmer)
 	 */
 	public static TreeSet<String> uniqueStems(Path input) throws IOException {
 		try (BufferedReader reader = Files.newBufferedReader(input, UTF_8);) {
 			TreeSet<String> stems = new TreeSet<String>();
-			SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+			Stemmer stemmer = StemCache.ENGLISH;
 			String line = null;
 			while ((line = reader.readLine()) != null) {
 				addStems(line, stemmer, stems);
@@ -213,15 +205,14 @@ public class FileStemmer {
 	 *         a single line of the input file
 	 * @throws IOException if unable to read or parse file
 	 *
-	 * @see SnowballStemmer
-	 * @see ALGORITHM#ENGLISH
+	 * @see StemCache#ENGLISH
 	 * @see StandardCharsets#UTF_8
 	 * @see #uniqueStems(String, Stemmer)
 	 */
 	public static ArrayList<TreeSet<String>> listUniqueStems(Path input) throws IOException {
 		try (BufferedReader reader = Files.newBufferedReader(input, UTF_8);) {
 			ArrayList<TreeSet<String>> stemList = new ArrayList<TreeSet<String>>();
-			SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+			Stemmer stemmer = StemCache.ENGLISH;
 			String line = null;
 			while ((line = reader.readLine()) != null) {
 				TreeSet<String> stemSet = uniqueStems(line, stemmer);
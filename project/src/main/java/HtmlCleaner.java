@@ -1,6 +1,9 @@
 package edu.usfca.cs272;
 
-import java.util.regex.Pattern;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
 
 import org.apache.commons.text.StringEscapeUtils;
 
@@ -11,12 +14,13 @@ import org.apache.commons.text.StringEscapeUtils;
  * but does not check that the removed entity was valid.
  *
  * <p>
- * Look at the "See Also" section for useful classes and methods for
- * implementing this class.
+ * Every method removes the same text as the regular expression in its comment
+ * with {@link String#replaceAll(String, String)}, but scans the text once
+ * instead of backtracking, so it takes linear time on any input. The scans work
+ * in place on a character array, so {@link HtmlScanner} can run them one after
+ * the other on the same array.
  *
- * @see String#replaceAll(String, String)
- * @see Pattern#DOTALL
- * @see Pattern#CASE_INSENSITIVE
+ * @see HtmlScanner
  * @see StringEscapeUtils#unescapeHtml4(String)
  *
  * @author CS 272 Software Development (University of San Francisco) and Noga
@@ -24,6 +28,12 @@ import org.apache.commons.text.StringEscapeUtils;
  * @version Spring 2023
  */
 public class HtmlCleaner {
+	/**
+	 * the block elements removed with their content, in the order they are
+	 * removed
+	 */
+	private static final String[] BLOCK_ELEMENTS = { "head", "style", "script", "noscript", "iframe", "svg" };
+
 	/**
 	 * Replaces all HTML tags with an empty string. For example, the html
 	 * {@code A<b>B</b>C} will become {@code ABC}.
@@ -34,11 +44,42 @@ public class HtmlCleaner {
 	 * @param html text including HTML tags to remove
 	 * @return text without any HTML tags
 	 *
-	 * @see String#replaceAll(String, String)
+	 * @see #stripTags(char[], int)
 	 */
 	public static String stripTags(String html) {
-		String regex = "<[^<>]*>";
-		return html.replaceAll(regex, "");
+		char[] chars = html.toCharArray();
+		return new String(chars, 0, stripTags(chars, chars.length));
+	}
+
+	/**
+	 * stripTags method to remove the tags in place, the same as the regular
+	 * expression {@code <[^<>]*>}
+	 *
+	 * @param html   the text, changed in place
+	 * @param length of the text in the array
+	 * @return the length of the text without the tags
+	 */
+	static int stripTags(char[] html, int length) {
+		int read = 0;
+		int write = 0;
+		int i = indexOf(html, length, '<', 0);
+		while (i >= 0) {
+			int j = i + 1;
+			while (j < length && html[j] != '<' && html[j] != '>') {
+				j++;
+			}
+			if (j == length) {
+				break;
+			}
+			if (html[j] == '>') {
+				write = move(html, read, i, write);
+				read = j + 1;
+				i = indexOf(html, length, '<', read);
+			} else {
+				i = j;
+			}
+		}
+		return move(html, read, length, write);
 	}
 
 	/**
@@ -60,8 +101,78 @@ public class HtmlCleaner {
 	 * @return text with all HTML entities converted or removed
 	 */
 	public static String stripEntities(String html) {
-		String regex = "&[A-Za-z0-9#]*;";
-		return StringEscapeUtils.unescapeHtml4(html).replaceAll(regex, "");
+		if (html.indexOf('&') < 0) {
+			return html;
+		}
+		char[] chars = html.toCharArray();
+		return stripEntities(chars, chars.length);
+	}
+
+	/**
+	 * stripEntities method to convert or remove the entities into a new string,
+	 * the same as {@link #stripEntities(String)} on the text. The text is only
+	 * given to {@link StringEscapeUtils#UNESCAPE_HTML4} where an entity starts,
+	 * and the array is not changed.
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @return text with all HTML entities converted or removed
+	 * @throws IllegalArgumentException if a numeric entity is not a valid
+	 *                                  character
+	 */
+	static String stripEntities(char[] html, int length) {
+		int i = indexOf(html, length, '&', 0);
+		if (i < 0) {
+			return new String(html, 0, length);
+		}
+		// a converted entity is never longer than the entity
+		char[] chars = new char[length];
+		CharBuffer input = CharBuffer.wrap(html, 0, length);
+		CharArrayWriter entity = new CharArrayWriter(2);
+		int read = 0;
+		int write = 0;
+		while (i >= 0) {
+			int consumed;
+			try {
+				consumed = StringEscapeUtils.UNESCAPE_HTML4.translate(input, i, entity);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (consumed == 0) {
+				i = indexOf(html, length, '&', i + 1);
+				continue;
+			}
+			System.arraycopy(html, read, chars, write, i - read);
+			write += i - read;
+			char[] converted = entity.toCharArray();
+			System.arraycopy(converted, 0, chars, write, converted.length);
+			write += converted.length;
+			entity.reset();
+			read = Character.offsetByCodePoints(html, 0, length, i, consumed);
+			i = indexOf(html, length, '&', read);
+		}
+		System.arraycopy(html, read, chars, write, length - read);
+		length = write + length - read;
+
+		// removes the unknown entities left, like the regular expression
+		// &[A-Za-z0-9#]*;
+		read = 0;
+		write = 0;
+		i = indexOf(chars, length, '&', 0);
+		while (i >= 0) {
+			int j = i + 1;
+			while (j < length && isEntity(chars[j])) {
+				j++;
+			}
+			if (j < length && chars[j] == ';') {
+				write = move(chars, read, i, write);
+				read = j + 1;
+				i = indexOf(chars, length, '&', read);
+			} else {
+				i = indexOf(chars, length, '&', j);
+			}
+		}
+		return new String(chars, 0, move(chars, read, length, write));
 	}
 
 	/**
@@ -86,11 +197,40 @@ public class HtmlCleaner {
 	 * @param html text including HTML comments to remove
 	 * @return text without any HTML comments
 	 *
-	 * @see String#replaceAll(String, String)
+	 * @see #stripComments(char[], int)
 	 */
 	public static String stripComments(String html) {
-		String regex = "(?is)<!--.+?--+>";
-		return html.replaceAll(regex, "");
+		char[] chars = html.toCharArray();
+		return new String(chars, 0, stripComments(chars, chars.length));
+	}
+
+	/**
+	 * stripComments method to remove the comments in place, the same as the
+	 * regular expression {@code (?is)<!--.+?--+>}. A comment ends at the first
+	 * {@code -->} after at least one character of the comment.
+	 *
+	 * @param html   the text, changed in place
+	 * @param length of the text in the array
+	 * @return the length of the text without the comments
+	 */
+	static int stripComments(char[] html, int length) {
+		int read = 0;
+		int write = 0;
+		int i = indexOf(html, length, "<!--", read);
+		while (i >= 0) {
+			int end = i + 7;
+			while (end < length && !(html[end] == '>' && html[end - 1] == '-' && html[end - 2] == '-')) {
+				end++;
+			}
+			if (end >= length) {
+				// a later comment can not end either
+				break;
+			}
+			write = move(html, read, i, write);
+			read = end + 1;
+			i = indexOf(html, length, "<!--", read);
+		}
+		return move(html, read, length, write);
 	}
 
 	/**
@@ -111,13 +251,79 @@ public class HtmlCleaner {
 	 * @param name name of the HTML element (like "style" or "script")
 	 * @return text without that HTML element
 	 *
-	 * @see String#formatted(Object...)
-	 * @see String#format(String, Object...)
-	 * @see String#replaceAll(String, String)
+	 * @see #stripElement(char[], int, String)
 	 */
 	public static String stripElement(String html, String name) {
-		String regex = "(?is)<" + name + "\\b[^<>]*>.*?\\b" + name + "\\s*>";
-		return html.replaceAll(regex, "");
+		char[] chars = html.toCharArray();
+		return new String(chars, 0, stripElement(chars, chars.length, name));
+	}
+
+	/**
+	 * stripElement method to remove an element in place, the same as the regular
+	 * expression {@code (?is)<name\b[^<>]*>.*?\bname\s*>}. The element ends at
+	 * the first name after its start tag that is not part of a longer word and is
+	 * followed by {@code >}, so {@code </script>} but also {@code <script>}.
+	 *
+	 * @param html   the text, changed in place
+	 * @param length of the text in the array
+	 * @param name   of the element, in lower case ASCII letters
+	 * @return the length of the text without the element
+	 */
+	static int stripElement(char[] html, int length, String name) {
+		int read = 0;
+		int write = 0;
+		int i = indexOfTag(html, length, name, read);
+		while (i >= 0) {
+			int j = i + 1 + name.length();
+			if (isWord(html, length, j)) {
+				i = indexOfTag(html, length, name, i + 1);
+				continue;
+			}
+			while (j < length && html[j] != '<' && html[j] != '>') {
+				j++;
+			}
+			if (j == length) {
+				break;
+			}
+			if (html[j] == '<') {
+				i = indexOfTag(html, length, name, j);
+				continue;
+			}
+			int end = endOfElement(html, length, name, j + 1);
+			if (end < 0) {
+				// a later element can not end either
+				break;
+			}
+			write = move(html, read, i, write);
+			read = end;
+			i = indexOfTag(html, length, name, read);
+		}
+		return move(html, read, length, write);
+	}
+
+	/**
+	 * endOfElement helper method to find the end of an element, the first name
+	 * that is not after a letter or digit and is followed by {@code >}
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param name   of the element
+	 * @param from   where to start looking
+	 * @return the index after the {@code >}, or -1 if there is none
+	 */
+	private static int endOfElement(char[] html, int length, String name, int from) {
+		for (int i = from; i + name.length() < length; i++) {
+			if (matches(html, length, name, i) && !isWord(html, length, i - 1, i)) {
+				int j = i + name.length();
+				while (j < length && isSpace(html[j])) {
+					j++;
+				}
+				if (j < length && html[j] == '>') {
+					return j + 1;
+				}
+			}
+		}
+		return -1;
 	}
 
 	/**
@@ -128,14 +334,24 @@ public class HtmlCleaner {
 	 * @return text clean of any comments and certain HTML block elements
 	 */
 	public static String stripBlockElements(String html) {
-		html = stripComments(html);
-		html = stripElement(html, "head");
-		html = stripElement(html, "style");
-		html = stripElement(html, "script");
-		html = stripElement(html, "noscript");
-		html = stripElement(html, "iframe");
-		html = stripElement(html, "svg");
-		return html;
+		char[] chars = html.toCharArray();
+		return new String(chars, 0, stripBlockElements(chars, chars.length));
+	}
+
+	/**
+	 * stripBlockElements method to remove the comments and block elements in
+	 * place, one after the other like {@link #stripBlockElements(String)}
+	 *
+	 * @param html   the text, changed in place
+	 * @param length of the text in the array
+	 * @return the length of the text without the comments and block elements
+	 */
+	static int stripBlockElements(char[] html, int length) {
+		length = stripComments(html, length);
+		for (String name : BLOCK_ELEMENTS) {
+			length = stripElement(html, length, name);
+		}
+		return length;
 	}
 
 	/**
@@ -148,9 +364,203 @@ public class HtmlCleaner {
 	 * @return text clean of any HTML tags and certain block elements
 	 */
 	public static String stripHtml(String html) {
-		html = stripBlockElements(html);
-		html = stripTags(html);
-		html = stripEntities(html);
-		return html;
+		char[] chars = html.toCharArray();
+		int length = stripBlockElements(chars, chars.length);
+		length = stripTags(chars, length);
+		return stripEntities(new String(chars, 0, length));
+	}
+
+	/**
+	 * move helper method to move a part of the text to the start of the text that
+	 * is kept
+	 *
+	 * @param html  the text
+	 * @param from  the start of the part
+	 * @param to    the end of the part
+	 * @param write where the part is moved to, not after from
+	 * @return the index after the moved part
+	 */
+	private static int move(char[] html, int from, int to, int write) {
+		if (write != from) {
+			System.arraycopy(html, from, html, write, to - from);
+		}
+		return write + to - from;
+	}
+
+	/**
+	 * indexOf helper method to find a character
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param c      the character
+	 * @param from   where to start looking
+	 * @return the index of the character, or -1 if there is none
+	 */
+	static int indexOf(char[] html, int length, char c, int from) {
+		for (int i = from; i < length; i++) {
+			if (html[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * indexOf helper method to find a string
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param s      the string
+	 * @param from   where to start looking
+	 * @return the index of the string, or -1 if there is none
+	 */
+	private static int indexOf(char[] html, int length, String s, int from) {
+		for (int i = indexOf(html, length, s.charAt(0), from); i >= 0; i = indexOf(html, length, s.charAt(0), i + 1)) {
+			if (i + s.length() > length) {
+				return -1;
+			}
+			int j = 1;
+			while (j < s.length() && html[i + j] == s.charAt(j)) {
+				j++;
+			}
+			if (j == s.length()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * indexOfTag helper method to find a {@code <} followed by a name, ignoring
+	 * case
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param name   in lower case ASCII letters
+	 * @param from   where to start looking
+	 * @return the index of the {@code <}, or -1 if there is none
+	 */
+	private static int indexOfTag(char[] html, int length, String name, int from) {
+		for (int i = indexOf(html, length, '<', from); i >= 0; i = indexOf(html, length, '<', i + 1)) {
+			if (matches(html, length, name, i + 1)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * matches helper method to check if the text has a name at an index, ignoring
+	 * the case of ASCII letters like {@link java.util.regex.Pattern#CASE_INSENSITIVE}
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param name   in lower case ASCII letters
+	 * @param index  where the name starts
+	 * @return true if the name is at the index
+	 */
+	static boolean matches(char[] html, int length, String name, int index) {
+		if (index + name.length() > length) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			char c = html[index + i];
+			if (c != name.charAt(i) && !(c >= 'A' && c <= 'Z' && c + ('a' - 'A') == name.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * isWord helper method to check if the character at an index is part of a
+	 * word, like {@code \b} in a regular expression in Java 17: a letter, a
+	 * digit, an underscore, or a non-spacing mark after a letter or digit
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param index  of the character
+	 * @return true if the character is part of a word, false if it is not or the
+	 *         index is the end of the text
+	 */
+	private static boolean isWord(char[] html, int length, int index) {
+		if (index >= length) {
+			return false;
+		}
+		int c = Character.codePointAt(html, index, length);
+		return isWord(c) || (Character.getType(c) == Character.NON_SPACING_MARK && hasBase(html, length, index));
+	}
+
+	/**
+	 * isWord helper method to check if the character before an index is part of a
+	 * word, like {@link #isWord(char[], int, int)}
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param last   the index before the index, where a non-spacing mark is
+	 *               checked from
+	 * @param index  the index
+	 * @return true if the character before the index is part of a word
+	 */
+	private static boolean isWord(char[] html, int length, int last, int index) {
+		if (index <= 0) {
+			return false;
+		}
+		int c = Character.codePointBefore(html, index);
+		return isWord(c) || (Character.getType(c) == Character.NON_SPACING_MARK && hasBase(html, length, last));
+	}
+
+	/**
+	 * isWord helper method to check if a character is a letter, a digit or an
+	 * underscore
+	 *
+	 * @param c the character
+	 * @return true if the character is part of a word
+	 */
+	private static boolean isWord(int c) {
+		return c == '_' || Character.isLetterOrDigit(c);
+	}
+
+	/**
+	 * hasBase helper method to check if the non-spacing marks before an index
+	 * follow a letter or digit
+	 *
+	 * @param html   the text
+	 * @param length of the text in the array
+	 * @param index  of the last mark
+	 * @return true if the first character before the marks is a letter or digit
+	 */
+	private static boolean hasBase(char[] html, int length, int index) {
+		for (int i = index; i >= 0; i--) {
+			int c = Character.codePointAt(html, i, length);
+			if (Character.isLetterOrDigit(c)) {
+				return true;
+			}
+			if (Character.getType(c) != Character.NON_SPACING_MARK) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * isSpace helper method to check if a character is a space, like {@code \s}
+	 * in a regular expression
+	 *
+	 * @param c the character
+	 * @return true if the character is a space
+	 */
+	static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * isEntity helper method to check if a character can be in an entity
+	 *
+	 * @param c the character
+	 * @return true if the character is an ASCII letter, a digit or #
+	 */
+	private static boolean isEntity(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '#';
 	}
 }
@@ -0,0 +1,91 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HtmlScanner class to read a page once for both its links and its text. The
+ * comments and block elements are removed once, the HREF attributes of the
+ * anchor tags are found in what is left, and then the tags and entities are
+ * removed from the same array for the text.
+ *
+ * The links and text are the same as {@link LinkFinder#listUrls(java.net.URL, String)}
+ * on {@link HtmlCleaner#stripBlockElements(String)}, and
+ * {@link HtmlCleaner#stripHtml(String)}, and every step takes linear time.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class HtmlScanner {
+	/**
+	 * hrefs with the values of the HREF attributes of the anchor tags
+	 */
+	private final List<String> hrefs;
+
+	/**
+	 * html with the page without comments and block elements, and then without
+	 * tags once the text is found
+	 */
+	private final char[] html;
+
+	/**
+	 * length of the page in the array
+	 */
+	private int length;
+
+	/**
+	 * stripped with true once the tags are removed from the array
+	 */
+	private boolean stripped;
+
+	/**
+	 * text with the visible text of the page, or null until it is found
+	 */
+	private String text;
+
+	/**
+	 * Constructor
+	 *
+	 * @param html of the page to read
+	 */
+	public HtmlScanner(String html) {
+		this.html = html.toCharArray();
+		this.length = HtmlCleaner.stripBlockElements(this.html, this.html.length);
+		ArrayList<String> hrefs = new ArrayList<String>();
+		LinkFinder.findHrefs(this.html, length, hrefs);
+		this.hrefs = Collections.unmodifiableList(hrefs);
+		this.stripped = false;
+		this.text = null;
+	}
+
+	/**
+	 * getHrefs method to get the values of the HREF attributes of the anchor tags,
+	 * outside of comments and block elements
+	 *
+	 * @return unmodifiable list of the values, in the order they were found
+	 */
+	public List<String> getHrefs() {
+		return hrefs;
+	}
+
+	/**
+	 * getText method to get the visible text of the page. The text is found the
+	 * first time, so an entity that can not be read only fails here and not when
+	 * the links are found, like in {@link HtmlCleaner#stripHtml(String)}.
+	 *
+	 * @return the text without comments, block elements, tags and entities
+	 * @throws IllegalArgumentException if a numeric entity is not a valid
+	 *                                  character
+	 */
+	public String getText() {
+		if (text == null) {
+			if (!stripped) {
+				length = HtmlCleaner.stripTags(html, length);
+				stripped = true;
+			}
+			text = HtmlCleaner.stripEntities(html, length);
+		}
+		return text;
+	}
+}
@@ -0,0 +1,130 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * IdDictionary class to give out dense int ids for strings (words or
+ * locations). Ids start at 0 and are given in the order the strings are first
+ * added, so they can be used directly as array indexes. The strings are also
+ * kept sorted for ordered and prefix lookups.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class IdDictionary {
+	/**
+	 * ids sorted map from string to id
+	 */
+	private final TreeMap<String, Integer> ids;
+
+	/**
+	 * strings list from id to string
+	 */
+	private final ArrayList<String> strings;
+
+	/**
+	 * Constructor
+	 */
+	public IdDictionary() {
+		ids = new TreeMap<String, Integer>();
+		strings = new ArrayList<String>();
+	}
+
+	/**
+	 * add method to get the id of a string, giving it the next id if it is new
+	 *
+	 * @param string to add
+	 * @return the id of the string
+	 */
+	public int add(String string) {
+		Integer id = ids.get(string);
+		if (id == null) {
+			id = strings.size();
+			ids.put(string, id);
+			strings.add(string);
+		}
+		return id;
+	}
+
+	/**
+	 * getId method to get the id of a string
+	 *
+	 * @param string to look for
+	 * @return the id of the string, or -1 if the string is not in the dictionary
+	 */
+	public int getId(String string) {
+		Integer id = ids.get(string);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * get method to get the string of an id
+	 *
+	 * @param id to look for
+	 * @return the string with this id
+	 */
+	public String get(int id) {
+		return strings.get(id);
+	}
+
+	/**
+	 * contains method to check if a string is in the dictionary
+	 *
+	 * @param string to check
+	 * @return true if the string has an id
+	 */
+	public boolean contains(String string) {
+		return ids.containsKey(string);
+	}
+
+	/**
+	 * remove method to remove a string from the dictionary. The id is not given
+	 * again, and {@link #get(int)} still returns the string for it, so data kept by
+	 * the old id can still be found. Adding the string again gives it a new id.
+	 *
+	 * @param string to remove
+	 * @return the old id of the string, or -1 if the string was not in the
+	 *         dictionary
+	 */
+	public int remove(String string) {
+		Integer id = ids.remove(string);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * size method to get the number of ids given, including the ids of removed
+	 * strings
+	 *
+	 * @return number of ids in the dictionary
+	 */
+	public int size() {
+		return strings.size();
+	}
+
+	/**
+	 * strings method to get all strings in sorted order
+	 *
+	 * @return unmodifiable sorted set of the strings
+	 */
+	public Set<String> strings() {
+		return Collections.unmodifiableSet(ids.keySet());
+	}
+
+	/**
+	 * sorted method to get the sorted string to id mapping
+	 *
+	 * @return unmodifiable sorted map of the strings and their ids
+	 */
+	public NavigableMap<String, Integer> sorted() {
+		return Collections.unmodifiableNavigableMap(ids);
+	}
+
+	@Override
+	public String toString() {
+		return ids.toString();
+	}
+}
@@ -0,0 +1,267 @@
+package edu.usfca.cs272;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * IndexFile class with the framing of the binary index format. A file starts
+ * with a magic number and the format version, and ends with a CRC32 checksum of
+ * everything before it. What is written in between is up to the index, see
+ * {@link InvertedIndex#save(Path)}. Other files, such as the
+ * {@link IndexManifest}, use the same framing with their own magic number.
+ *
+ * Files are written and read sequentially through large buffers.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class IndexFile {
+	/** The magic number at the start of every index file ("SIDX"). */
+	public static final int MAGIC = 0x53494458;
+
+	/** The version of the format, changed whenever the format changes. */
+	public static final int VERSION = 1;
+
+	/** The size of the read and write buffers. */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Writer class to write an index file
+	 */
+	public static class Writer implements Closeable {
+		/**
+		 * checksum of everything written so far
+		 */
+		private final CRC32 checksum;
+
+		/**
+		 * out with the buffered stream to the file
+		 */
+		private final DataOutputStream out;
+
+		/**
+		 * Opens the file and writes the header
+		 *
+		 * @param path to write into
+		 * @throws IOException when IO error accrue
+		 */
+		public Writer(Path path) throws IOException {
+			this(path, MAGIC);
+		}
+
+		/**
+		 * Opens the file and writes the header with another magic number
+		 *
+		 * @param path  to write into
+		 * @param magic the magic number of the kind of file
+		 * @throws IOException when IO error accrue
+		 */
+		public Writer(Path path, int magic) throws IOException {
+			checksum = new CRC32();
+			out = new DataOutputStream(new BufferedOutputStream(
+					new CheckedOutputStream(Files.newOutputStream(path), checksum), BUFFER_SIZE));
+			out.writeInt(magic);
+			out.writeInt(VERSION);
+		}
+
+		/**
+		 * writeInt method to write a number
+		 *
+		 * @param value to write
+		 * @throws IOException when IO error accrue
+		 */
+		public void writeInt(int value) throws IOException {
+			out.writeInt(value);
+		}
+
+		/**
+		 * writeLong method to write a large number
+		 *
+		 * @param value to write
+		 * @throws IOException when IO error accrue
+		 */
+		public void writeLong(long value) throws IOException {
+			out.writeLong(value);
+		}
+
+		/**
+		 * writeString method to write a string as its UTF-8 length and bytes
+		 *
+		 * @param value to write
+		 * @throws IOException when IO error accrue
+		 */
+		public void writeString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		/**
+		 * writeBytes method to write part of an array
+		 *
+		 * @param bytes  to write
+		 * @param offset of the first byte to write
+		 * @param length number of bytes to write
+		 * @throws IOException when IO error accrue
+		 */
+		public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+		}
+
+		/**
+		 * finish method to write the checksum at the end of the file. A file that was
+		 * not finished fails to load.
+		 *
+		 * @throws IOException when IO error accrue
+		 */
+		public void finish() throws IOException {
+			out.flush();
+			out.writeLong(checksum.getValue());
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reader class to read an index file
+	 */
+	public static class Reader implements Closeable {
+		/**
+		 * checksum of everything read so far
+		 */
+		private final CRC32 checksum;
+
+		/**
+		 * in with the buffered stream from the file
+		 */
+		private final DataInputStream in;
+
+		/**
+		 * Opens the file and checks the header
+		 *
+		 * @param path to read from
+		 * @throws IOException when IO error accrue, or if the file is not an index
+		 *                     file of this version
+		 */
+		public Reader(Path path) throws IOException {
+			this(path, MAGIC);
+		}
+
+		/**
+		 * Opens the file and checks the header with another magic number
+		 *
+		 * @param path  to read from
+		 * @param magic the magic number of the kind of file
+		 * @throws IOException when IO error accrue, or if the file is not that kind
+		 *                     of file of this version
+		 */
+		public Reader(Path path, int magic) throws IOException {
+			checksum = new CRC32();
+			// the checksum is above the buffer, so it does not see the bytes read ahead
+			in = new DataInputStream(new CheckedInputStream(
+					new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE), checksum));
+			try {
+				if (in.readInt() != magic) {
+					throw new IOException("not an index file: " + path);
+				}
+				int version = in.readInt();
+				if (version != VERSION) {
+					throw new IOException("unsupported index file version " + version + ": " + path);
+				}
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * readInt method to read a number
+		 *
+		 * @return the number
+		 * @throws IOException when IO error accrue
+		 */
+		public int readInt() throws IOException {
+			return in.readInt();
+		}
+
+		/**
+		 * readLong method to read a large number
+		 *
+		 * @return the number
+		 * @throws IOException when IO error accrue
+		 */
+		public long readLong() throws IOException {
+			return in.readLong();
+		}
+
+		/**
+		 * readCount method to read a number that can not be negative
+		 *
+		 * @return the number
+		 * @throws IOException when IO error accrue, or if the number is negative
+		 */
+		public int readCount() throws IOException {
+			int count = in.readInt();
+			if (count < 0) {
+				throw new IOException("corrupted index file");
+			}
+			return count;
+		}
+
+		/**
+		 * readString method to read a string written by
+		 * {@link Writer#writeString(String)}
+		 *
+		 * @return the string
+		 * @throws IOException when IO error accrue
+		 */
+		public String readString() throws IOException {
+			byte[] bytes = new byte[readCount()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * readBytes method to read bytes into part of an array
+		 *
+		 * @param bytes  to read into
+		 * @param offset where to start
+		 * @param length number of bytes to read
+		 * @throws IOException when IO error accrue
+		 */
+		public void readBytes(byte[] bytes, int offset, int length) throws IOException {
+			in.readFully(bytes, offset, length);
+		}
+
+		/**
+		 * finish method to check the checksum at the end of the file
+		 *
+		 * @throws IOException when IO error accrue, or if the checksum does not match
+		 */
+		public void finish() throws IOException {
+			long expected = checksum.getValue();
+			if (in.readLong() != expected || in.read() != -1) {
+				throw new IOException("corrupted index file");
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
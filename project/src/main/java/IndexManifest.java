@@ -0,0 +1,293 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexManifest class with the size, modified time and content hash of every
+ * file in a saved index, so the next build only reads the files that changed,
+ * see {@link InvertedIndexBuilder#update(Path, InvertedIndex, IndexManifest)}.
+ * It is saved next to the index with the same framing as an index file.
+ *
+ * The manifest is safe to use from many threads.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class IndexManifest {
+	/** The magic number at the start of every manifest file ("SMAN"). */
+	public static final int MAGIC = 0x534D414E;
+
+	/** The name of the hash of the files. */
+	private static final String ALGORITHM = "SHA-256";
+
+	/** The size of the buffer the files are hashed through. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * entries from location to what was indexed for it
+	 */
+	private final ConcurrentHashMap<String, Entry> entries;
+
+	/**
+	 * Entry class with what was indexed for one file
+	 */
+	public static class Entry {
+		/**
+		 * size of the file in bytes
+		 */
+		private final long size;
+
+		/**
+		 * modified time of the file in nanoseconds
+		 */
+		private final long modified;
+
+		/**
+		 * hash of the content of the file
+		 */
+		private final byte[] hash;
+
+		/**
+		 * words with the number of words indexed for the file
+		 */
+		private final int words;
+
+		/**
+		 * Constructor
+		 *
+		 * @param size     of the file in bytes
+		 * @param modified time of the file in nanoseconds
+		 * @param hash     of the content of the file
+		 * @param words    the number of words indexed for the file
+		 */
+		public Entry(long size, long modified, byte[] hash, int words) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash.clone();
+			this.words = words;
+		}
+
+		/**
+		 * Constructor with the size and modified time of a file
+		 *
+		 * @param attributes of the file
+		 * @param hash       of the content of the file
+		 * @param words      the number of words indexed for the file
+		 */
+		public Entry(BasicFileAttributes attributes, byte[] hash, int words) {
+			this(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), hash, words);
+		}
+
+		/**
+		 * getSize method to get the size of the file
+		 *
+		 * @return the size in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * getModified method to get the modified time of the file
+		 *
+		 * @return the time in nanoseconds
+		 */
+		public long getModified() {
+			return modified;
+		}
+
+		/**
+		 * getWords method to get the number of words indexed for the file
+		 *
+		 * @return the number of words
+		 */
+		public int getWords() {
+			return words;
+		}
+
+		/**
+		 * sameFile method to check if a file has the same size and modified time,
+		 * so it was not changed since it was indexed
+		 *
+		 * @param attributes of the file now
+		 * @return true if both are the same
+		 */
+		public boolean sameFile(BasicFileAttributes attributes) {
+			return size == attributes.size() && modified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * sameHash method to check if a file has the same content
+		 *
+		 * @param other hash of the file now
+		 * @return true if the hashes are the same
+		 */
+		public boolean sameHash(byte[] other) {
+			return MessageDigest.isEqual(hash, other);
+		}
+
+		@Override
+		public String toString() {
+			return "Entry{size=" + size + ", modified=" + modified + ", words=" + words + "}";
+		}
+	}
+
+	/**
+	 * Constructor of an empty manifest
+	 */
+	public IndexManifest() {
+		this.entries = new ConcurrentHashMap<String, Entry>();
+	}
+
+	/**
+	 * get method to get the entry of a location
+	 *
+	 * @param location of the file
+	 * @return the entry, or null if the file is not in the manifest
+	 */
+	public Entry get(String location) {
+		return entries.get(location);
+	}
+
+	/**
+	 * put method to add or replace the entry of a location
+	 *
+	 * @param location of the file
+	 * @param entry    with what was indexed for it
+	 */
+	public void put(String location, Entry entry) {
+		entries.put(location, entry);
+	}
+
+	/**
+	 * remove method to remove the entry of a location
+	 *
+	 * @param location of the file
+	 * @return true if the file was in the manifest
+	 */
+	public boolean remove(String location) {
+		return entries.remove(location) != null;
+	}
+
+	/**
+	 * getLocations method to get the locations in the manifest
+	 *
+	 * @return unmodifiable view of the locations
+	 */
+	public Set<String> getLocations() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	/**
+	 * size method to get the number of files in the manifest
+	 *
+	 * @return number of files
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * newDigest method to create the hash the files are compared with
+	 *
+	 * @return a new digest
+	 */
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * hash method to get the hash of the content of a file
+	 *
+	 * @param path of the file
+	 * @return the hash
+	 * @throws IOException when IO error accrue
+	 */
+	public static byte[] hash(Path path) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(path)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * save method to write the manifest into a file, that can be loaded back with
+	 * {@link #load(Path)}
+	 *
+	 * @param path to write into
+	 * @throws IOException when IO error accrue
+	 */
+	public void save(Path path) throws IOException {
+		try (var writer = new IndexFile.Writer(path, MAGIC)) {
+			// a copy, so the count is the same as the entries written
+			var copy = new ArrayList<>(entries.entrySet());
+			writer.writeInt(copy.size());
+			for (var pair : copy) {
+				Entry entry = pair.getValue();
+				writer.writeString(pair.getKey());
+				writer.writeLong(entry.size);
+				writer.writeLong(entry.modified);
+				writer.writeInt(entry.words);
+				writer.writeInt(entry.hash.length);
+				writer.writeBytes(entry.hash, 0, entry.hash.length);
+			}
+			writer.finish();
+		}
+	}
+
+	/**
+	 * load method to read a manifest file written by {@link #save(Path)}
+	 *
+	 * @param path to read from
+	 * @return a new manifest with the entries of the file
+	 * @throws IOException when IO error accrue, or if the file is not a valid
+	 *                     manifest file
+	 */
+	public static IndexManifest load(Path path) throws IOException {
+		IndexManifest manifest = new IndexManifest();
+		try (var reader = new IndexFile.Reader(path, MAGIC)) {
+			int count = reader.readCount();
+			for (int i = 0; i < count; i++) {
+				String location = reader.readString();
+				long size = reader.readLong();
+				long modified = reader.readLong();
+				int words = reader.readCount();
+				int length = reader.readCount();
+				if (length > 64) {
+					throw new IOException("corrupted index file");
+				}
+				byte[] hash = new byte[length];
+				reader.readBytes(hash, 0, length);
+				manifest.entries.put(location, new Entry(size, modified, hash, words));
+			}
+			reader.finish();
+		}
+		return manifest;
+	}
+
+	@Override
+	public String toString() {
+		return "IndexManifest{size=" + size() + "}";
+	}
+}
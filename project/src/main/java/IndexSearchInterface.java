@@ -0,0 +1,124 @@
+package edu.usfca.cs272;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+
+/**
+ * @author Noga Gottlieb interface for an index that can be searched
+ *
+ */
+public interface IndexSearchInterface {
+
+	/**
+	 * search method to search for queries in the index. Calling partial/exact
+	 * search.
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, call exact search, if false, call partial search
+	 * @return list of search result objects with all the results for this query
+	 */
+	public default List<SearchResult> search(Set<String> queries, boolean exact) {
+		return exact ? exactSearch(queries) : partialSearch(queries);
+	}
+
+	/**
+	 * search method to search for queries in the index, ranking the results with
+	 * a scorer. The {@link Scorer#CURRENT} scorer gives the same results as
+	 * {@link #search(Set, boolean)}.
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param scorer  to rank the results with
+	 * @return sorted list of search result objects with all the results for this
+	 *         query
+	 */
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer);
+
+	/**
+	 * search method to search for a query with phrases or words near each other,
+	 * see {@link PhraseQuery}. The phrases always match their words exactly, the
+	 * other words of the query are searched exactly or partially.
+	 *
+	 * @param query to search for
+	 * @param exact if true, search the other words exactly, if false, partially
+	 * @return sorted list of search result objects with all the results for this
+	 *         query
+	 */
+	public List<SearchResult> search(PhraseQuery query, boolean exact);
+
+	/**
+	 * search method to search for a query with the AND, OR and NOT operators, see
+	 * {@link BooleanQuery}
+	 *
+	 * @param query to search for
+	 * @param exact if true, search exactly, if false, search partially
+	 * @return sorted list of search result objects with all the results for this
+	 *         query
+	 */
+	public List<SearchResult> search(BooleanQuery query, boolean exact);
+
+	/**
+	 * search method to find only the best results for queries in the index. The
+	 * results are the first k results of {@link #search(Set, boolean)}, in the
+	 * same order.
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param k       the maximum number of results
+	 * @return sorted list of the best k search result objects for this query
+	 */
+	public default List<SearchResult> search(Set<String> queries, boolean exact, int k) {
+		return TopKSearch.first(search(queries, exact), k);
+	}
+
+	/**
+	 * exactSearch method to search exactly for queries in the index
+	 *
+	 * @param queries to search exactly for
+	 * @return sorted list of exact search result objects with all the results for
+	 *         this query
+	 */
+	public List<SearchResult> exactSearch(Set<String> queries);
+
+	/**
+	 * partialSearch method to search for all words starting with the queries in the
+	 * index
+	 *
+	 * @param queries to search partially for
+	 * @return sorted list of partial search result objects with all the results
+	 *         for this query
+	 */
+	public List<SearchResult> partialSearch(Set<String> queries);
+
+	/**
+	 * complete method to get the words in the index that start with a prefix, for
+	 * autocompletion
+	 *
+	 * @param prefix to complete
+	 * @param limit  the maximum number of words to return
+	 * @return the most common completions, ordered by number of locations and then
+	 *         by word
+	 */
+	public List<String> complete(String prefix, int limit);
+
+	/**
+	 * getCounts method to get the number of words in every location
+	 *
+	 * @return sorted map from location to word count
+	 */
+	public Map<String, Integer> getCounts();
+
+	/**
+	 * version method to get the number of changes made to the index, so cached
+	 * results can be checked against it. An index that does not change, or does
+	 * not count its changes, always returns 0.
+	 *
+	 * @return the version of the index
+	 */
+	public default long version() {
+		return 0;
+	}
+}
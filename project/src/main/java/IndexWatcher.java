@@ -0,0 +1,436 @@
+package edu.usfca.cs272;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * IndexWatcher class to keep an index up to date with a directory while it is
+ * searched. Every directory of the tree is registered with a
+ * {@link WatchService}, and the files that are created, modified or deleted
+ * are collected until no event came for a delay, and then indexed again as one
+ * batch by several threads.
+ *
+ * Every file is read into its own index first, and only moved into the shared
+ * index with {@link InvertedIndex#replaceLocation(String, InvertedIndex)}, so
+ * the write lock is held for the copy of one file and not while it is read.
+ *
+ * The lag is the time from the first event of a batch until all its files are
+ * in the index.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class IndexWatcher implements Closeable {
+	/** The default delay in milliseconds with no events before a batch. */
+	public static final int DEFAULT_DELAY = 500;
+
+	/** The longest wait for a batch, in delays, when events keep coming. */
+	private static final int MAX_DELAYS = 10;
+
+	/** Logger used for this class. */
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * root with the directory that is watched
+	 */
+	private final Path root;
+
+	/**
+	 * invertedIndex to update
+	 */
+	private final ThreadSafeInvertedIndex invertedIndex;
+
+	/**
+	 * threads with the number of threads indexing a batch
+	 */
+	private final int threads;
+
+	/**
+	 * delay in nanoseconds with no events before a batch is indexed
+	 */
+	private final long delay;
+
+	/**
+	 * service with the registered directories
+	 */
+	private final WatchService service;
+
+	/**
+	 * directories from the key of every registered directory to its path, only
+	 * used by the watching thread once it started
+	 */
+	private final Map<WatchKey, Path> directories;
+
+	/**
+	 * pending from every changed path to the time of its first event, only used by
+	 * the watching thread once it started
+	 */
+	private Map<Path, Long> pending;
+
+	/**
+	 * first with the time of the first event of the pending batch
+	 */
+	private long first;
+
+	/**
+	 * thread that watches the directories
+	 */
+	private Thread thread;
+
+	/**
+	 * tasks to index the files of a batch
+	 */
+	private WorkQueue tasks;
+
+	/**
+	 * events with the number of events read
+	 */
+	private final LongAdder events;
+
+	/**
+	 * indexed with the number of files indexed again
+	 */
+	private final LongAdder indexed;
+
+	/**
+	 * removed with the number of files removed from the index
+	 */
+	private final LongAdder removed;
+
+	/**
+	 * batches with the number of batches indexed
+	 */
+	private long batches;
+
+	/**
+	 * lastLag with the lag of the last batch in milliseconds
+	 */
+	private long lastLag;
+
+	/**
+	 * maxLag with the largest lag of a batch in milliseconds
+	 */
+	private long maxLag;
+
+	/**
+	 * Constructor, registers every directory of the tree. The events from here on
+	 * are kept until {@link #start()} is called, so the index can be built after
+	 * this without missing a change.
+	 *
+	 * @param root          the directory to watch
+	 * @param invertedIndex to update
+	 * @param threads       the number of threads indexing a batch
+	 * @param delay         in milliseconds with no events before a batch is
+	 *                      indexed
+	 * @throws IOException if the directories can not be registered
+	 */
+	public IndexWatcher(Path root, ThreadSafeInvertedIndex invertedIndex, int threads, int delay)
+			throws IOException {
+		if (delay < 1) {
+			throw new IllegalArgumentException("Delay must be positive: " + delay);
+		}
+		this.root = root;
+		this.invertedIndex = invertedIndex;
+		this.threads = threads;
+		this.delay = TimeUnit.MILLISECONDS.toNanos(delay);
+		this.service = root.getFileSystem().newWatchService();
+		this.directories = new HashMap<WatchKey, Path>();
+		this.pending = new LinkedHashMap<Path, Long>();
+		this.events = new LongAdder();
+		this.indexed = new LongAdder();
+		this.removed = new LongAdder();
+		try {
+			register(root, false);
+		} catch (IOException e) {
+			service.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * start method to start indexing the changes in the background
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("The watcher was already started");
+		}
+		tasks = new WorkQueue(threads);
+		thread = new Thread(this::watch, "IndexWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * watch method to read the events and index a batch once no event came for
+	 * the delay, or once it waited for many delays while events keep coming
+	 */
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = pending.isEmpty() ? service.take() : service.poll(delay, TimeUnit.NANOSECONDS);
+				if (key != null) {
+					read(key);
+				}
+				if (!pending.isEmpty() && (key == null || System.nanoTime() - first >= MAX_DELAYS * delay)) {
+					flush();
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			log.debug("Index watcher closed");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * read method to add the paths of the events of a directory to the batch
+	 *
+	 * @param key of the directory
+	 */
+	private void read(WatchKey key) {
+		Path directory = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			events.increment();
+			if (event.kind() == OVERFLOW) {
+				// some events were lost, so every file is checked
+				log.info("Index watcher lost events, checking all files");
+				for (String location : invertedIndex.getCounts().keySet()) {
+					add(Path.of(location));
+				}
+				try {
+					register(root, true);
+				} catch (IOException e) {
+					log.catching(Level.DEBUG, e);
+				}
+			} else if (directory != null) {
+				Path path = directory.resolve((Path) event.context());
+				if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+					// files can be written before the directory is registered
+					try {
+						register(path, true);
+					} catch (IOException e) {
+						log.catching(Level.DEBUG, e);
+					}
+				} else {
+					add(path);
+				}
+			}
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	/**
+	 * add method to add a path to the batch
+	 *
+	 * @param path that changed
+	 */
+	private void add(Path path) {
+		long now = System.nanoTime();
+		if (pending.isEmpty()) {
+			first = now;
+		}
+		pending.putIfAbsent(path, now);
+	}
+
+	/**
+	 * register method to register a directory and its subdirectories
+	 *
+	 * @param directory to register
+	 * @param files     if true, the text files found are added to the batch
+	 * @throws IOException if a directory can not be registered
+	 */
+	private void register(Path directory, boolean files) throws IOException {
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) throws IOException {
+				directories.put(path.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), path);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+				if (files && DirectoryTraverser.isTextFile(path)) {
+					add(path);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path path, IOException e) {
+				// a file that is gone or can not be read is not indexed
+				log.catching(Level.DEBUG, e);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * flush method to index the files of the batch
+	 */
+	private void flush() {
+		Map<Path, Long> batch = pending;
+		long start = first;
+		pending = new LinkedHashMap<Path, Long>();
+		for (Path path : batch.keySet()) {
+			tasks.execute(new WatchTask(path));
+		}
+		tasks.finish();
+		finished(System.nanoTime() - start);
+		log.info("Index watcher: {} files, {}", batch.size(), this);
+	}
+
+	/**
+	 * update method to index a file again, or remove it if it is gone
+	 *
+	 * @param path of the file
+	 */
+	private void update(Path path) {
+		if (Files.isRegularFile(path)) {
+			if (DirectoryTraverser.isTextFile(path)) {
+				InvertedIndex local = new InvertedIndex();
+				try {
+					InvertedIndexBuilder.buildFile(path, local);
+				} catch (NoSuchFileException e) {
+					remove(path);
+					return;
+				} catch (IOException e) {
+					// the old words are kept until the file can be read
+					log.catching(Level.DEBUG, e);
+					return;
+				}
+				invertedIndex.replaceLocation(path.toString(), local);
+				indexed.increment();
+			}
+		} else if (!Files.exists(path)) {
+			remove(path);
+		}
+	}
+
+	/**
+	 * remove method to remove a file, or all files of a directory, from the index
+	 *
+	 * @param path of the file or directory that is gone
+	 */
+	private void remove(Path path) {
+		if (invertedIndex.removeLocation(path.toString())) {
+			removed.increment();
+			return;
+		}
+		// a copy, the other files of the batch are changed while it is read
+		for (String location : invertedIndex.getCounts().keySet()) {
+			if (Path.of(location).startsWith(path) && invertedIndex.removeLocation(location)) {
+				removed.increment();
+			}
+		}
+	}
+
+	/**
+	 * finished method to count a batch
+	 *
+	 * @param lag of the batch in nanoseconds
+	 */
+	private synchronized void finished(long lag) {
+		batches++;
+		lastLag = TimeUnit.NANOSECONDS.toMillis(lag);
+		maxLag = Math.max(maxLag, lastLag);
+	}
+
+	/**
+	 * getMetrics method to get the counts of the watcher, shown by
+	 * {@link WatchServlet}
+	 *
+	 * @return map from the name of every count to its value, with the lags in
+	 *         milliseconds
+	 */
+	public synchronized Map<String, Long> getMetrics() {
+		Map<String, Long> metrics = new LinkedHashMap<String, Long>();
+		metrics.put("events", events.sum());
+		metrics.put("batches", batches);
+		metrics.put("indexed", indexed.sum());
+		metrics.put("removed", removed.sum());
+		metrics.put("lastLag", lastLag);
+		metrics.put("maxLag", maxLag);
+		return metrics;
+	}
+
+	/**
+	 * close method to stop watching. A batch that is being indexed is finished
+	 * first.
+	 *
+	 * @throws IOException if the watch service can not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		service.close();
+		Thread watching;
+		WorkQueue queue;
+		// not joined while holding the lock, the batch needs it to finish
+		synchronized (this) {
+			watching = thread;
+			queue = tasks;
+		}
+		if (watching != null) {
+			try {
+				watching.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			queue.shutdown();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getMetrics().toString();
+	}
+
+	/**
+	 * WatchTask class to index one file of a batch
+	 */
+	private class WatchTask implements Runnable {
+		/**
+		 * path of the file
+		 */
+		private final Path path;
+
+		/**
+		 * Initializes a task
+		 *
+		 * @param path of the file
+		 */
+		public WatchTask(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public void run() {
+			update(path);
+		}
+	}
+}
@@ -2,14 +2,22 @@ package edu.usfca.cs272;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 /**
  * invertedIndex class to hold the information, and search . //what other
@@ -18,24 +26,66 @@ import java.util.TreeSet;
  * @author Noga Gottlieb
  *
  */
-public class InvertedIndex {
+public class InvertedIndex implements IndexSearchInterface {
 	/**
-	 * inverted index data structure String word, String location, Set indexes
+	 * terms dictionary with the id of every word
 	 */
+	private IdDictionary terms;
 
-	private TreeMap<String, TreeMap<String, Set<Integer>>> invertedIndex;
+	/**
+	 * locations dictionary with the id of every location
+	 */
+	private IdDictionary locations;
+
+	/**
+	 * inverted index data structure, the postings of every word by word id
+	 */
+	private ArrayList<TermPostings> invertedIndex;
+
+	/**
+	 * Word count of every location by location id
+	 */
+	private int[] wordCount;
+
+	/**
+	 * totalWords with the sum of the word counts of all locations
+	 */
+	private long totalWords;
+
+	/**
+	 * deleted with the tombstones of the removed location ids. Their postings stay
+	 * in the index and are skipped, until {@link #compact()} drops them.
+	 */
+	private BitSet deleted;
+
+	/**
+	 * deletedCount with the number of removed location ids
+	 */
+	private int deletedCount;
+
+	/**
+	 * prefixes with the prefix dictionary of the words, built when first needed
+	 * and dropped whenever the index changes
+	 */
+	private volatile Prefixes prefixes;
 
 	/**
-	 * Word count TreeMap with the files and the word count in them
+	 * bounds with the upper bound of the score of every word by word id, built
+	 * when first needed and dropped whenever the index changes
 	 */
-	private TreeMap<String, Integer> wordCount;
+	private volatile double[] bounds;
 
 	/**
 	 * Constructor
 	 */
 	public InvertedIndex() {
-		wordCount = new TreeMap<String, Integer>();
-		invertedIndex = new TreeMap<String, TreeMap<String, Set<Integer>>>();
+		terms = new IdDictionary();
+		locations = new IdDictionary();
+		invertedIndex = new ArrayList<TermPostings>();
+		wordCount = new int[16];
+		totalWords = 0;
+		deleted = new BitSet();
+		deletedCount = 0;
 	}
 
 	/**
@@ -48,22 +98,14 @@ public class InvertedIndex {
 	 * @return true if able to add to the tree
 	 */
 	public boolean addIndex(String word, String location, Integer index) {
-		TreeMap<String, Set<Integer>> words = invertedIndex.get(word);
-		if (words == null) {
-			words = new TreeMap<>();
-			invertedIndex.put(word, words);
-		}
-		Set<Integer> indexes = words.get(location);
-		if (indexes == null) {
-			indexes = new TreeSet<>();
-			words.put(location, indexes);
-		}
-
-		boolean modified = indexes.add(index);
+		int doc = addLocation(location);
+		boolean modified = addTerm(word).getOrAdd(doc).addPosition(index);
+		prefixes = null;
+		bounds = null;
 
 		if (modified) {
-			int count = wordCount.getOrDefault(location, 0);
-			wordCount.put(location, count + 1);
+			wordCount[doc]++;
+			totalWords++;
 		}
 
 		return modified;
@@ -76,29 +118,481 @@ public class InvertedIndex {
 	 * @param inverted to add
 	 */
 	public void addAll(InvertedIndex inverted) {
-		for (var entry : inverted.invertedIndex.entrySet()) {
-			String word = entry.getKey();
-			var otherLocations = entry.getValue();
-			var currentLocations = invertedIndex.get(word);
-			if (currentLocations == null) {
-				invertedIndex.put(word, otherLocations);
+		if (inverted.deletedCount > 0) {
+			inverted = inverted.compacted();
+		}
+		prefixes = null;
+		bounds = null;
+		int[] docs = addLocations(inverted);
+		for (int term = 0; term < inverted.terms.size(); term++) {
+			addPostings(inverted, term, docs);
+		}
+		for (int doc = 0; doc < docs.length; doc++) {
+			wordCount[docs[doc]] += inverted.wordCount[doc];
+		}
+		totalWords += inverted.totalWords;
+	}
+
+	/**
+	 * addAll method to add the data of some of the words from one invertedIndex to
+	 * another. The word counts grow by the number of positions added for those
+	 * words, so splitting an index between several indexes keeps the total counts.
+	 *
+	 * @param inverted to add
+	 * @param words    to choose which words to add
+	 */
+	public void addAll(InvertedIndex inverted, Predicate<String> words) {
+		prefixes = null;
+		bounds = null;
+		int[] docs = new int[inverted.locations.size()];
+		Arrays.fill(docs, -1);
+		for (int term = 0; term < inverted.terms.size(); term++) {
+			if (words.test(inverted.terms.get(term))) {
+				addCounted(inverted, term, docs, true);
+			}
+		}
+	}
+
+	/**
+	 * split method to split the words of the index between several parts in one
+	 * pass over the words. Every part can then be added with
+	 * {@link #addAll(InvertedIndex, int[])}, which is the same as calling
+	 * {@link #addAll(InvertedIndex, Predicate)} with the words of that part.
+	 *
+	 * @param count the number of parts
+	 * @param part  to choose the part of every word, from 0 to count - 1
+	 * @return the ids of the words of every part
+	 */
+	int[][] split(int count, ToIntFunction<String> part) {
+		int[] parts = new int[terms.size()];
+		int[] sizes = new int[count];
+		for (int term = 0; term < parts.length; term++) {
+			parts[term] = part.applyAsInt(terms.get(term));
+			sizes[parts[term]]++;
+		}
+		int[][] split = new int[count][];
+		for (int i = 0; i < count; i++) {
+			split[i] = new int[sizes[i]];
+			sizes[i] = 0;
+		}
+		for (int term = 0; term < parts.length; term++) {
+			split[parts[term]][sizes[parts[term]]++] = term;
+		}
+		return split;
+	}
+
+	/**
+	 * addAll method to add the data of some of the words from one invertedIndex to
+	 * another, by the ids of the words in the other index, such as a part found
+	 * by {@link #split(int, ToIntFunction)}. The word counts grow by the number of
+	 * positions added, and the positions are shared, not copied.
+	 *
+	 * @param inverted to add
+	 * @param words    the ids of the words to add in the other index
+	 */
+	void addAll(InvertedIndex inverted, int[] words) {
+		addAll(inverted, words, true);
+	}
+
+	/**
+	 * addAll method to add the data of some of the words from one invertedIndex to
+	 * another, like {@link #addAll(InvertedIndex, int[])}, with the postings of
+	 * the locations that are not in this index skipped if they are not added. Used
+	 * by indexes that keep the same location ids in several indexes, where only
+	 * {@link #addLocation(String)} gives ids.
+	 *
+	 * @param inverted to add
+	 * @param words    the ids of the words to add in the other index
+	 * @param add      if true, add the locations that are not in this index, if
+	 *                 false, skip their postings
+	 */
+	void addAll(InvertedIndex inverted, int[] words, boolean add) {
+		prefixes = null;
+		bounds = null;
+		int[] docs = new int[inverted.locations.size()];
+		Arrays.fill(docs, -1);
+		for (int term : words) {
+			addCounted(inverted, term, docs, add);
+		}
+	}
+
+	/**
+	 * addCounted helper method to add the postings of a word of another index, and
+	 * grow the word counts by the number of positions added. The postings of
+	 * removed locations are skipped.
+	 *
+	 * @param inverted with the postings to add
+	 * @param term     the id of the word in the other index
+	 * @param docs     the ids in this index by the location ids in the other index,
+	 *                 -1 for locations not looked up yet, or -2 for skipped
+	 *                 locations
+	 * @param add      if true, add the locations that are not in this index, if
+	 *                 false, skip their postings
+	 */
+	private void addCounted(InvertedIndex inverted, int term, int[] docs, boolean add) {
+		var otherPostings = inverted.invertedIndex.get(term);
+		TermPostings currentPostings = null;
+		for (int i = 0; i < otherPostings.size(); i++) {
+			int doc = otherPostings.doc(i);
+			if (inverted.deletedCount > 0 && inverted.deleted.get(doc)) {
+				continue;
+			}
+			if (docs[doc] == -1) {
+				String location = inverted.locations.get(doc);
+				int id = add ? addLocation(location) : locations.getId(location);
+				docs[doc] = id < 0 ? -2 : id;
+			}
+			if (docs[doc] < 0) {
+				continue;
+			}
+			if (currentPostings == null) {
+				currentPostings = addTerm(inverted.terms.get(term));
+			}
+			PostingList list = otherPostings.positions(i);
+			currentPostings.put(docs[doc], list);
+			wordCount[docs[doc]] += list.size();
+			totalWords += list.size();
+		}
+	}
+
+	/**
+	 * addAll method to add the data of several indexes of consecutive parts of the
+	 * same locations, such as the parts of a large file indexed on their own. The
+	 * positions of every part start from 1, and are moved by the offset of the part
+	 * so they come after the positions of the parts before it.
+	 *
+	 * @param parts   to add, in order
+	 * @param offsets the offset of every part, usually the sum of the word counts
+	 *                of the parts before it
+	 */
+	public void addAll(List<InvertedIndex> parts, int[] offsets) {
+		// the joined lists are only made here, so they are appended to in place
+		InvertedIndex joined = new InvertedIndex();
+		for (int part = 0; part < parts.size(); part++) {
+			InvertedIndex inverted = parts.get(part);
+			if (inverted.deletedCount > 0) {
+				inverted = inverted.compacted();
+			}
+			int[] docs = joined.addLocations(inverted);
+			for (int term = 0; term < inverted.terms.size(); term++) {
+				var otherPostings = inverted.invertedIndex.get(term);
+				var currentPostings = joined.addTerm(inverted.terms.get(term));
+				for (int i = 0; i < otherPostings.size(); i++) {
+					currentPostings.getOrAdd(docs[otherPostings.doc(i)]).addAll(otherPostings.positions(i), offsets[part]);
+				}
+			}
+			for (int doc = 0; doc < docs.length; doc++) {
+				joined.wordCount[docs[doc]] += inverted.wordCount[doc];
+			}
+			joined.totalWords += inverted.totalWords;
+		}
+		addAll(joined);
+	}
+
+	/**
+	 * addWords method to add the postings of the words that match some queries
+	 * from one invertedIndex to another, without their word counts. The postings
+	 * of removed locations are skipped and the positions are shared, not copied,
+	 * so the other index must not change while this index is used. Used to gather
+	 * words from several indexes to search them together.
+	 *
+	 * @param inverted to add from
+	 * @param queries  to add the matching words of
+	 * @param exact    if true, add the words exactly, if false, add all words
+	 *                 starting with the queries
+	 */
+	void addWords(InvertedIndex inverted, Set<String> queries, boolean exact) {
+		addWords(inverted, queries, exact, false);
+	}
+
+	/**
+	 * addWords method to add the postings of the words that match some queries
+	 * from one invertedIndex to another, like
+	 * {@link #addWords(InvertedIndex, Set, boolean)}, with the positions copied if
+	 * the other index may change while this index is used
+	 *
+	 * @param inverted to add from
+	 * @param queries  to add the matching words of
+	 * @param exact    if true, add the words exactly, if false, add all words
+	 *                 starting with the queries
+	 * @param copy     if true, copy the positions instead of sharing them
+	 */
+	void addWords(InvertedIndex inverted, Set<String> queries, boolean exact, boolean copy) {
+		prefixes = null;
+		bounds = null;
+		int[] docs = new int[inverted.locations.size()];
+		Arrays.fill(docs, -1);
+		BitSet added = new BitSet();
+		inverted.matchingTerms(queries, exact, term -> {
+			if (!added.get(term)) {
+				added.set(term);
+				var otherPostings = inverted.invertedIndex.get(term);
+				var currentPostings = addTerm(inverted.terms.get(term));
+				for (int i = 0; i < otherPostings.size(); i++) {
+					int doc = otherPostings.doc(i);
+					if (inverted.deletedCount == 0 || !inverted.deleted.get(doc)) {
+						if (docs[doc] < 0) {
+							docs[doc] = addLocation(inverted.locations.get(doc));
+						}
+						PostingList list = otherPostings.positions(i);
+						if (copy) {
+							list = new PostingList();
+							list.addAll(otherPostings.positions(i));
+						}
+						currentPostings.put(docs[doc], list);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * removeLocation method to remove a location and all its words. The location
+	 * is marked as removed and skipped from then on, and its positions are dropped
+	 * later by {@link #compact()}, which runs on its own once more than half of the
+	 * location ids are removed.
+	 *
+	 * @param location to remove
+	 * @return true if the location was in the index
+	 */
+	public boolean removeLocation(String location) {
+		int doc = locations.remove(location);
+		if (doc < 0) {
+			return false;
+		}
+		prefixes = null;
+		bounds = null;
+		deleted.set(doc);
+		deletedCount++;
+		totalWords -= wordCount[doc];
+		wordCount[doc] = 0;
+		if (deletedCount > locations.strings().size()) {
+			compact();
+		}
+		return true;
+	}
+
+	/**
+	 * replaceLocation method to index a location again. Removes the old words of
+	 * the location, and adds the words another index has for it, with its word
+	 * count. Only this location is changed, so a changed file does not need a
+	 * rebuild of the index.
+	 *
+	 * @param location to replace
+	 * @param inverted with the new data of the location, if it does not have the
+	 *                 location it is only removed
+	 */
+	public void replaceLocation(String location, InvertedIndex inverted) {
+		replaceLocation(location, inverted, false);
+	}
+
+	/**
+	 * replaceLocation method to index a location again, like
+	 * {@link #replaceLocation(String, InvertedIndex)}, with the positions copied if
+	 * the other index may change while this index is used, or this index may change
+	 * while the other index is used
+	 *
+	 * @param location to replace
+	 * @param inverted with the new data of the location
+	 * @param copy     if true, copy the positions instead of sharing them
+	 */
+	void replaceLocation(String location, InvertedIndex inverted, boolean copy) {
+		removeLocation(location);
+		int other = inverted.locations.getId(location);
+		if (other < 0) {
+			return;
+		}
+		prefixes = null;
+		bounds = null;
+		int doc = addLocation(location);
+		wordCount[doc] = inverted.wordCount[other];
+		totalWords += wordCount[doc];
+		for (int term = 0; term < inverted.terms.size(); term++) {
+			PostingList list = inverted.invertedIndex.get(term).get(other);
+			if (list != null) {
+				if (copy) {
+					PostingList copied = new PostingList();
+					copied.addAll(list);
+					list = copied;
+				}
+				addTerm(inverted.terms.get(term)).put(doc, list);
+			}
+		}
+	}
+
+	/**
+	 * compact method to drop the positions of removed locations and the words that
+	 * are left with no locations. Location and word ids are given again, in the
+	 * same order.
+	 */
+	public void compact() {
+		if (deletedCount == 0) {
+			return;
+		}
+		InvertedIndex compacted = compacted();
+		terms = compacted.terms;
+		locations = compacted.locations;
+		invertedIndex = compacted.invertedIndex;
+		wordCount = compacted.wordCount;
+		totalWords = compacted.totalWords;
+		deleted = new BitSet();
+		deletedCount = 0;
+		prefixes = null;
+		bounds = null;
+	}
+
+	/**
+	 * compacted helper method to copy the index without the removed locations. The
+	 * copy shares the positions of this index.
+	 *
+	 * @return the copy
+	 */
+	private InvertedIndex compacted() {
+		InvertedIndex compacted = new InvertedIndex();
+		int[] docs = new int[locations.size()];
+		for (int doc = 0; doc < docs.length; doc++) {
+			if (deleted.get(doc)) {
+				docs[doc] = -1;
 			} else {
-				for (var otherEntry : otherLocations.entrySet()) {
-					String otherLocation = otherEntry.getKey();
-					var otherIndexes = otherEntry.getValue();
-					var currentIndexes = currentLocations.get(otherLocation);
-					if (currentIndexes == null) {
-						currentLocations.put(otherLocation, otherIndexes);
-					} else {
-						currentIndexes.addAll(otherIndexes);
+				docs[doc] = compacted.addLocation(locations.get(doc));
+				compacted.wordCount[docs[doc]] = wordCount[doc];
+				compacted.totalWords += wordCount[doc];
+			}
+		}
+		for (int term = 0; term < terms.size(); term++) {
+			var postings = invertedIndex.get(term);
+			TermPostings target = null;
+			for (int i = 0; i < postings.size(); i++) {
+				int doc = docs[postings.doc(i)];
+				if (doc >= 0) {
+					if (target == null) {
+						target = compacted.addTerm(terms.get(term));
 					}
+					target.put(doc, postings.positions(i));
 				}
 			}
 		}
-		for (var entry : inverted.wordCount.entrySet()) {
-			String location = entry.getKey();
-			wordCount.put(location, wordCount.getOrDefault(location, 0) + entry.getValue());
+		return compacted;
+	}
+
+	/**
+	 * liveSize helper method to get the number of locations of a word that were
+	 * not removed
+	 *
+	 * @param postings of the word
+	 * @return the number of locations
+	 */
+	private int liveSize(TermPostings postings) {
+		if (deletedCount == 0) {
+			return postings.size();
+		}
+		int size = 0;
+		for (int i = 0; i < postings.size(); i++) {
+			if (!deleted.get(postings.doc(i))) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * addLocations helper method to add all locations of another index
+	 *
+	 * @param inverted with the locations to add
+	 * @return the ids in this index by the location ids in the other index
+	 */
+	private int[] addLocations(InvertedIndex inverted) {
+		int[] docs = new int[inverted.locations.size()];
+		for (int doc = 0; doc < docs.length; doc++) {
+			docs[doc] = addLocation(inverted.locations.get(doc));
+		}
+		return docs;
+	}
+
+	/**
+	 * addPostings helper method to add the postings of a word of another index
+	 *
+	 * @param inverted with the postings to add
+	 * @param term     the id of the word in the other index
+	 * @param docs     the ids in this index by the location ids in the other index
+	 */
+	private void addPostings(InvertedIndex inverted, int term, int[] docs) {
+		var otherPostings = inverted.invertedIndex.get(term);
+		var currentPostings = addTerm(inverted.terms.get(term));
+		for (int i = 0; i < otherPostings.size(); i++) {
+			currentPostings.put(docs[otherPostings.doc(i)], otherPostings.positions(i));
+		}
+	}
+
+	/**
+	 * addTerm helper method to get the postings of a word, adding the word if it
+	 * is new
+	 *
+	 * @param word to add
+	 * @return the postings of the word
+	 */
+	private TermPostings addTerm(String word) {
+		int term = terms.add(word);
+		if (term == invertedIndex.size()) {
+			invertedIndex.add(new TermPostings());
+		}
+		return invertedIndex.get(term);
+	}
+
+	/**
+	 * addLocation method to get the id of a location, adding the location with no
+	 * words if it is new
+	 *
+	 * @param location to add
+	 * @return the id of the location
+	 */
+	int addLocation(String location) {
+		int doc = locations.add(location);
+		if (doc == wordCount.length) {
+			wordCount = Arrays.copyOf(wordCount, doc + (doc >> 1) + 1);
 		}
+		return doc;
+	}
+
+	/**
+	 * locationId method to get the id of a location
+	 *
+	 * @param location to look for
+	 * @return the id of the location, or -1 if it is not in the index
+	 */
+	int locationId(String location) {
+		return locations.getId(location);
+	}
+
+	/**
+	 * location method to get a location by its id
+	 *
+	 * @param doc the id of the location
+	 * @return the location, also if it was removed
+	 */
+	String location(int doc) {
+		return locations.get(doc);
+	}
+
+	/**
+	 * locationIds method to get the number of location ids given, with the ids
+	 * of removed locations
+	 *
+	 * @return the number of ids
+	 */
+	int locationIds() {
+		return locations.size();
+	}
+
+	/**
+	 * getPostings helper method to get the postings of a word
+	 *
+	 * @param word to look for
+	 * @return the postings of the word, or null if the word is not in the index
+	 */
+	private TermPostings getPostings(String word) {
+		int term = terms.getId(word);
+		return term < 0 ? null : invertedIndex.get(term);
 	}
 
 	/**
@@ -107,7 +601,16 @@ public class InvertedIndex {
 	 * @return key set of the invertedIndex
 	 */
 	public Set<String> getWords() {
-		return Collections.unmodifiableSet(invertedIndex.keySet());
+		if (deletedCount == 0) {
+			return terms.strings();
+		}
+		TreeSet<String> words = new TreeSet<String>();
+		for (var entry : terms.sorted().entrySet()) {
+			if (liveSize(invertedIndex.get(entry.getValue())) > 0) {
+				words.add(entry.getKey());
+			}
+		}
+		return Collections.unmodifiableSet(words);
 	}
 
 	/**
@@ -117,9 +620,15 @@ public class InvertedIndex {
 	 * @return a map as the value
 	 */
 	public Set<String> getLocations(String word) {
-		var locations = invertedIndex.get(word);
-		if (locations != null) {
-			return Collections.unmodifiableSet(locations.keySet());
+		var postings = getPostings(word);
+		if (postings != null) {
+			TreeSet<String> found = new TreeSet<String>();
+			for (int i = 0; i < postings.size(); i++) {
+				if (!deleted.get(postings.doc(i))) {
+					found.add(locations.get(postings.doc(i)));
+				}
+			}
+			return Collections.unmodifiableSet(found);
 		}
 		return Collections.emptySet();
 	}
@@ -132,9 +641,10 @@ public class InvertedIndex {
 	 * @return the set of indexes the word appear at in this source
 	 */
 	public Set<Integer> getIndexes(String words, String location) {
-		var locations = invertedIndex.get(words);
-		if (locations != null) {
-			var positions = locations.get(location);
+		var postings = getPostings(words);
+		int doc = locations.getId(location);
+		if (postings != null && doc >= 0) {
+			var positions = postings.get(doc);
 			if (positions != null) {
 				return Collections.unmodifiableSet(positions);
 			}
@@ -148,7 +658,7 @@ public class InvertedIndex {
 	 * @return set of keys
 	 */
 	public Set<String> getAllLocations() {
-		return Collections.unmodifiableSet(wordCount.keySet());
+		return locations.strings();
 	}
 
 	/**
@@ -156,8 +666,13 @@ public class InvertedIndex {
 	 * 
 	 * @return a copy of the tree
 	 */
+	@Override
 	public Map<String, Integer> getCounts() {
-		return Collections.unmodifiableMap(wordCount);
+		TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+		for (var entry : locations.sorted().entrySet()) {
+			counts.put(entry.getKey(), wordCount[entry.getValue()]);
+		}
+		return Collections.unmodifiableMap(counts);
 	}
 
 	/**
@@ -178,7 +693,7 @@ public class InvertedIndex {
 	 * @return true if the word was found
 	 */
 	public boolean hasWord(String word) {
-		return invertedIndex.containsKey(word);
+		return locationSize(word) > 0;
 	}
 
 	/**
@@ -210,7 +725,7 @@ public class InvertedIndex {
 	 * @return the number of words in the inverted index
 	 */
 	public int wordsSize() {
-		return invertedIndex.keySet().size();
+		return deletedCount == 0 ? terms.size() : getWords().size();
 	}
 
 	/**
@@ -220,7 +735,8 @@ public class InvertedIndex {
 	 * @return size if the indexes set
 	 */
 	public int locationSize(String word) {
-		return getLocations(word).size();
+		var postings = getPostings(word);
+		return postings == null ? 0 : liveSize(postings);
 	}
 
 	/**
@@ -229,7 +745,26 @@ public class InvertedIndex {
 	 * @return size of wordCounts
 	 */
 	public int sizeCounts() {
-		return wordCount.size();
+		return locations.strings().size();
+	}
+
+	/**
+	 * totalCount method to get the number of stem words in all files
+	 *
+	 * @return the sum of the word counts of all locations
+	 */
+	public long totalCount() {
+		return totalWords;
+	}
+
+	/**
+	 * statistics method to get the numbers of the index a scorer needs, kept as
+	 * the index changes
+	 *
+	 * @return the statistics
+	 */
+	public Scorer.Statistics statistics() {
+		return new Scorer.Statistics(locations.strings().size(), totalWords);
 	}
 
 	/**
@@ -239,12 +774,13 @@ public class InvertedIndex {
 	 * @return the number of stem words in a give file
 	 */
 	public int sizeCountLocation(String location) {
-		return wordCount.getOrDefault(location, 0);
+		int doc = locations.getId(location);
+		return doc < 0 ? 0 : wordCount[doc];
 	}
 
 	@Override
 	public String toString() {
-		return invertedIndex.toString();
+		return deletedCount == 0 ? new IndexView().toString() : compacted().toString();
 	}
 
 	/**
@@ -254,7 +790,7 @@ public class InvertedIndex {
 	 * @return the map as a string
 	 */
 	public String toStringCounts() {
-		return wordCount.toString();
+		return getCounts().toString();
 	}
 
 	/**
@@ -264,19 +800,142 @@ public class InvertedIndex {
 	 * @throws IOException when IO error accrue
 	 */
 	public void indexJson(Path path) throws IOException {
-		JsonWriter.writeInverted(invertedIndex, path);
+		if (deletedCount > 0) {
+			compacted().indexJson(path);
+			return;
+		}
+		JsonWriter.writeInverted(new IndexView(), path);
 	}
 
 	/**
-	 * search method to search for queries in the inverted index. Calling
-	 * partial/exact search.
-	 * 
-	 * @param queries to search for
-	 * @param exact   if true, call exact search, if false, call partial search
-	 * @return list of search result objects with all the results for this query
+	 * save method to write the invertedIndex into a binary index file, that can be
+	 * loaded back with {@link #load(Path)} without building the index again. The
+	 * file has the locations with their word counts, and then every word with the
+	 * encoded positions of all its locations.
+	 *
+	 * @param path to write into
+	 * @throws IOException when IO error accrue
+	 */
+	public void save(Path path) throws IOException {
+		if (deletedCount > 0) {
+			compacted().save(path);
+			return;
+		}
+		try (var writer = new IndexFile.Writer(path)) {
+			writer.writeInt(locations.size());
+			for (int doc = 0; doc < locations.size(); doc++) {
+				writer.writeString(locations.get(doc));
+				writer.writeInt(wordCount[doc]);
+			}
+			writer.writeInt(terms.size());
+			byte[] buffer = new byte[64];
+			for (int term = 0; term < terms.size(); term++) {
+				var postings = invertedIndex.get(term);
+				writer.writeString(terms.get(term));
+				writer.writeInt(postings.size());
+				for (int i = 0; i < postings.size(); i++) {
+					PostingList list = postings.positions(i);
+					if (list.byteSize() > buffer.length) {
+						buffer = new byte[Math.max(list.byteSize(), buffer.length * 2)];
+					}
+					writer.writeInt(postings.doc(i));
+					writer.writeInt(list.size());
+					writer.writeInt(list.byteSize());
+					writer.writeBytes(buffer, 0, list.copyBytes(buffer, 0));
+				}
+			}
+			writer.finish();
+		}
+	}
+
+	/**
+	 * load method to read an index file written by {@link #save(Path)}
+	 *
+	 * @param path to read from
+	 * @return a new invertedIndex with the data of the file
+	 * @throws IOException when IO error accrue, or if the file is not a valid
+	 *                     index file
+	 */
+	public static InvertedIndex load(Path path) throws IOException {
+		InvertedIndex index = new InvertedIndex();
+		try (var reader = new IndexFile.Reader(path)) {
+			int locationCount = reader.readCount();
+			for (int i = 0; i < locationCount; i++) {
+				int doc = index.addLocation(reader.readString());
+				index.wordCount[doc] = reader.readCount();
+				index.totalWords += index.wordCount[doc];
+			}
+			if (index.locations.size() != locationCount) {
+				throw new IOException("corrupted index file");
+			}
+			int termCount = reader.readCount();
+			byte[] buffer = new byte[64];
+			for (int i = 0; i < termCount; i++) {
+				TermPostings postings = index.addTerm(reader.readString());
+				int size = reader.readCount();
+				for (int j = 0; j < size; j++) {
+					int doc = reader.readCount();
+					int positions = reader.readCount();
+					int length = reader.readCount();
+					// every position takes one to five bytes
+					if (doc >= locationCount || positions == 0 || positions > length || length > 5L * positions) {
+						throw new IOException("corrupted index file");
+					}
+					if (length > buffer.length) {
+						buffer = new byte[Math.max(length, buffer.length * 2)];
+					}
+					reader.readBytes(buffer, 0, length);
+					try {
+						postings.put(doc, new PostingList(buffer, 0, length, positions));
+					} catch (ArrayIndexOutOfBoundsException e) {
+						throw new IOException("corrupted index file", e);
+					}
+				}
+			}
+			if (index.terms.size() != termCount) {
+				throw new IOException("corrupted index file");
+			}
+			reader.finish();
+		}
+		return index;
+	}
+
+	/**
+	 * freeze method to create an immutable, read-optimized snapshot of the index.
+	 * Searching the snapshot returns the same results as searching this index did
+	 * when it was frozen, and does not change when this index does.
+	 *
+	 * @return the snapshot
 	 */
-	public List<SearchResult> search(Set<String> queries, boolean exact) {
-		return exact ? exactSearch(queries) : partialSearch(queries);
+	public InvertedIndexSnapshot freeze() {
+		if (deletedCount > 0) {
+			return compacted().freeze();
+		}
+		int[] docs = new int[locations.size()];
+		String[] sortedLocations = new String[locations.size()];
+		int[] counts = new int[locations.size()];
+		int rank = 0;
+		for (var entry : locations.sorted().entrySet()) {
+			docs[entry.getValue()] = rank;
+			sortedLocations[rank] = entry.getKey();
+			counts[rank] = wordCount[entry.getValue()];
+			rank++;
+		}
+
+		var builder = new InvertedIndexSnapshot.Builder(sortedLocations, counts);
+		for (var entry : terms.sorted().entrySet()) {
+			builder.addTerm(entry.getKey());
+			var postings = invertedIndex.get(entry.getValue());
+			long[] order = new long[postings.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = ((long) docs[postings.doc(i)] << 32) | i;
+			}
+			Arrays.sort(order);
+			for (long posting : order) {
+				builder.addPosting((int) (posting >>> 32), postings.positions((int) posting));
+			}
+		}
+		return builder.build();
 	}
 
 	/**
@@ -288,12 +947,9 @@ public class InvertedIndex {
 	 * @return list of exact search result objects with all the results for this
 	 *         query
 	 */
+	@Override
 	public List<SearchResult> exactSearch(Set<String> queries) {
-		List<SearchResult> results = new ArrayList<SearchResult>();
-		HashMap<String, SearchResult> matches = new HashMap<String, SearchResult>();
-		for (String query : queries) {
-			searchLogic(query, matches, results);
-		}
+		List<SearchResult> results = findMatches(queries, true);
 		Collections.sort(results);
 		return results;
 	}
@@ -307,44 +963,467 @@ public class InvertedIndex {
 	 * @return list of partial search result objects with all the results for this
 	 *         query
 	 */
+	@Override
 	public List<SearchResult> partialSearch(Set<String> queries) {
-		List<SearchResult> results = new ArrayList<SearchResult>();
-		HashMap<String, SearchResult> matches = new HashMap<String, SearchResult>();
+		List<SearchResult> results = findMatches(queries, false);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * findMatches method to search for queries without sorting the results
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @return unsorted list of search result objects, one for every location found
+	 */
+	List<SearchResult> findMatches(Set<String> queries, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		matchingTerms(queries, exact, term -> searchLogic(term, accumulator));
+		return accumulator.results(locations::get, doc -> wordCount[doc]);
+	}
+
+	/**
+	 * findMatches method to search for queries without sorting the results, with
+	 * the words scored by a scorer. The statistics and word counts are given, so
+	 * an index with only part of the words scores them like the whole index does.
+	 *
+	 * @param queries    to search for
+	 * @param exact      if true, search exactly, if false, search partially
+	 * @param scorer     to score the words with
+	 * @param statistics of the whole index
+	 * @param lengths    to get the word count of a location
+	 * @return unsorted list of search result objects, one for every location
+	 *         found, with the sum of the scores of the words as the score
+	 */
+	List<SearchResult> findMatches(Set<String> queries, boolean exact, Scorer scorer, Scorer.Statistics statistics,
+			ToIntFunction<String> lengths) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		IntUnaryOperator words = doc -> lengths.applyAsInt(locations.get(doc));
+		matchingTerms(queries, exact, term -> scoreLogic(term, scorer, statistics, words, accumulator));
+		return accumulator.results(locations::get, null, scorer);
+	}
+
+	/**
+	 * search method to search for queries in the inverted index, ranking the
+	 * results with a scorer
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param scorer  to rank the results with
+	 * @return sorted list of search result objects with all the results for this
+	 *         query
+	 */
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer) {
+		if (scorer == Scorer.CURRENT) {
+			return search(queries, exact);
+		}
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		Scorer.Statistics statistics = statistics();
+		IntUnaryOperator words = doc -> wordCount[doc];
+		matchingTerms(queries, exact, term -> scoreLogic(term, scorer, statistics, words, accumulator));
+		List<SearchResult> results = accumulator.results(locations::get, words, scorer);
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(PhraseQuery query, boolean exact) {
+		List<SearchResult> results = findMatches(query, exact);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * findMatches method to search for a query with phrases without sorting the
+	 * results
+	 *
+	 * @param query to search for
+	 * @param exact if true, search the other words exactly, if false, partially
+	 * @return unsorted list of search result objects, one for every location found
+	 */
+	List<SearchResult> findMatches(PhraseQuery query, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		matchingTerms(query.getWords(), exact, term -> searchLogic(term, accumulator));
+		query.match(word -> {
+			int term = terms.getId(word);
+			return term < 0 ? null : new TermPositions(invertedIndex.get(term));
+		}, accumulator);
+		return accumulator.results(locations::get, doc -> wordCount[doc]);
+	}
+
+	@Override
+	public List<SearchResult> search(BooleanQuery query, boolean exact) {
+		List<SearchResult> results = findMatches(query, exact);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * findMatches method to search for a query with operators without sorting the
+	 * results
+	 *
+	 * @param query to search for
+	 * @param exact if true, search exactly, if false, search partially
+	 * @return unsorted list of search result objects, one for every location found
+	 */
+	List<SearchResult> findMatches(BooleanQuery query, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		query.match(word -> {
+			List<PostingsReader> readers = new ArrayList<PostingsReader>();
+			matchingTerms(Set.of(word), exact, term -> readers.add(new TermPositions(invertedIndex.get(term))));
+			return readers;
+		}, accumulator);
+		return accumulator.results(locations::get, doc -> wordCount[doc]);
+	}
+
+	/**
+	 * matchingTerms helper method to call an action for the id of every word that
+	 * matches a query. In a partial search a word is matched once for every query
+	 * it starts with.
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param action  to call with every word id
+	 */
+	private void matchingTerms(Set<String> queries, boolean exact, IntConsumer action) {
 		for (String query : queries) {
-			for (var word : invertedIndex.tailMap(query).entrySet()) {
-				String invertedWord = word.getKey();
-				if (invertedWord.startsWith(query)) {
-					searchLogic(invertedWord, matches, results);
-				} else {
-					break;
+			if (exact) {
+				int term = terms.getId(query);
+				if (term >= 0) {
+					action.accept(term);
+				}
+			} else {
+				Prefixes prefixes = getPrefixes();
+				int end = prefixes.dictionary.end(query);
+				for (int i = prefixes.dictionary.first(query); i < end; i++) {
+					action.accept(prefixes.ids[i]);
 				}
 			}
 		}
-		Collections.sort(results);
-		return results;
+	}
+
+	/**
+	 * search method to find only the best results for queries in the inverted
+	 * index, see {@link TopKSearch}
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param k       the maximum number of results
+	 * @return sorted list of the best k search result objects for this query
+	 */
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, int k) {
+		return TopKSearch.search(cursors(queries, exact, getBounds(), null), locations::get, doc -> wordCount[doc], k);
+	}
+
+	/**
+	 * search method to find only the best results for queries in the inverted
+	 * index, like {@link #search(Set, boolean, int)}, without some locations. Used
+	 * by indexes with parts that do not change, where removing a location from a
+	 * part only marks it as skipped.
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param k       the maximum number of results
+	 * @param skipped the locations to leave out of the results
+	 * @return sorted list of the best k search result objects for this query
+	 */
+	List<SearchResult> search(Set<String> queries, boolean exact, int k, Set<String> skipped) {
+		BitSet docs = new BitSet();
+		for (String location : skipped) {
+			int doc = locations.getId(location);
+			if (doc >= 0) {
+				docs.set(doc);
+			}
+		}
+		return TopKSearch.search(cursors(queries, exact, getBounds(), docs), locations::get, doc -> wordCount[doc], k);
+	}
+
+	/**
+	 * cursors method to get a cursor for every word that matches some queries,
+	 * for a {@link TopKSearch} that reads the cursors of several indexes with the
+	 * same location ids together
+	 *
+	 * @param queries to find the matching words of
+	 * @param exact   if true, match exactly, if false, match partially
+	 * @param bounds  the upper bound of the score of every word by word id, see
+	 *                {@link #bounds(IntUnaryOperator)}
+	 * @param skipped the ids of the locations to skip, or null to only skip the
+	 *                removed locations
+	 * @return the cursors
+	 */
+	List<TopKSearch.Cursor> cursors(Set<String> queries, boolean exact, double[] bounds, BitSet skipped) {
+		List<TopKSearch.Cursor> cursors = new ArrayList<TopKSearch.Cursor>();
+		matchingTerms(queries, exact, term -> cursors.add(new PostingsCursor(term, bounds[term], skipped)));
+		return cursors;
+	}
+
+	/**
+	 * getBounds helper method to get the upper bounds of the scores of the words,
+	 * building them if the index changed since they were last built
+	 *
+	 * @return the bounds by word id
+	 */
+	private double[] getBounds() {
+		double[] current = bounds;
+		if (current == null) {
+			current = bounds(doc -> wordCount[doc]);
+			bounds = current;
+		}
+		return current;
+	}
+
+	/**
+	 * bounds method to get the upper bounds of the scores of the words, the
+	 * largest number of positions divided by the word count of any location that
+	 * is not removed
+	 *
+	 * @param words to get the word count of a location by its id, which can be
+	 *              larger than the count in this index, like the count of a
+	 *              location in all the indexes its words are split between
+	 * @return the bounds by word id
+	 */
+	double[] bounds(IntUnaryOperator words) {
+		double[] bounds = new double[terms.size()];
+		for (int term = 0; term < bounds.length; term++) {
+			var postings = invertedIndex.get(term);
+			for (int i = 0; i < postings.size(); i++) {
+				int doc = postings.doc(i);
+				if (deletedCount == 0 || !deleted.get(doc)) {
+					int count = words.applyAsInt(doc);
+					if (count > 0) {
+						bounds[term] = Math.max(bounds[term], (double) postings.positions(i).size() / count);
+					}
+				}
+			}
+		}
+		return bounds;
+	}
+
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		return getPrefixes().dictionary.complete(prefix, limit);
+	}
+
+	/**
+	 * getPrefixes helper method to get the prefix dictionary of the words,
+	 * building it if the index changed since it was last built
+	 *
+	 * @return the prefix dictionary
+	 */
+	private Prefixes getPrefixes() {
+		Prefixes current = prefixes;
+		if (current == null) {
+			current = new Prefixes();
+			prefixes = current;
+		}
+		return current;
 	}
 
 	/**
 	 * searchLogic helper method that holds the common logic for exact search and
 	 * partial search
 	 * 
-	 * @param word    to update in searchResult
-	 * @param matches map to look in
-	 * @param results list to update with the new searchResult object
-	 */
-	private void searchLogic(String word, HashMap<String, SearchResult> matches, List<SearchResult> results) {
-		var locations = invertedIndex.get(word);
-		if (locations != null) {
-			for (var entry : locations.entrySet()) {
-				String location = entry.getKey();
-				SearchResult result = matches.get(location);
-				if (result == null) {
-					result = new SearchResult(location);
-					results.add(result);
-					matches.put(location, result);
+	 * @param term        id of the word to add the matches of
+	 * @param accumulator to add the matches to
+	 */
+	private void searchLogic(int term, ScoreAccumulator accumulator) {
+		var postings = invertedIndex.get(term);
+		for (int i = 0; i < postings.size(); i++) {
+			int doc = postings.doc(i);
+			if (deletedCount == 0 || !deleted.get(doc)) {
+				accumulator.add(doc, postings.positions(i).size());
+			}
+		}
+	}
+
+	/**
+	 * scoreLogic helper method to add the matches of a word with their scores
+	 *
+	 * @param term        id of the word to add the matches of
+	 * @param scorer      to score the word with
+	 * @param statistics  of the whole index
+	 * @param words       to get the word count of a location by its id
+	 * @param accumulator to add the matches to
+	 */
+	private void scoreLogic(int term, Scorer scorer, Scorer.Statistics statistics, IntUnaryOperator words,
+			ScoreAccumulator accumulator) {
+		var postings = invertedIndex.get(term);
+		for (int i = 0; i < postings.size(); i++) {
+			int doc = postings.doc(i);
+			if (deletedCount == 0 || !deleted.get(doc)) {
+				int frequency = postings.positions(i).size();
+				accumulator.add(doc, frequency, scorer.score(frequency, words.applyAsInt(doc), postings.size(), statistics));
+			}
+		}
+	}
+
+	/**
+	 * PostingsCursor class to read the postings of a word for {@link TopKSearch},
+	 * skipping removed locations
+	 */
+	private class PostingsCursor extends TopKSearch.Cursor {
+		/**
+		 * postings of the word
+		 */
+		private final TermPostings postings;
+
+		/**
+		 * skipped with the ids of other locations to skip, or null
+		 */
+		private final BitSet skipped;
+
+		/**
+		 * Constructor
+		 *
+		 * @param term    id of the word
+		 * @param bound   upper bound of the score of the word
+		 * @param skipped the ids of other locations to skip, or null
+		 */
+		private PostingsCursor(int term, double bound, BitSet skipped) {
+			super(0, invertedIndex.get(term).size(), bound);
+			this.postings = invertedIndex.get(term);
+			this.skipped = skipped;
+		}
+
+		@Override
+		protected int doc(int index) {
+			return postings.doc(index);
+		}
+
+		@Override
+		protected int frequency(int index) {
+			return postings.positions(index).size();
+		}
+
+		@Override
+		protected boolean skipped(int doc) {
+			return deletedCount > 0 && deleted.get(doc) || skipped != null && skipped.get(doc);
+		}
+	}
+
+	/**
+	 * TermPositions class to read the postings of a word for {@link PhraseQuery}
+	 * and {@link BooleanQuery}, skipping removed locations
+	 */
+	private class TermPositions extends PostingsReader {
+		/**
+		 * postings of the word
+		 */
+		private final TermPostings postings;
+
+		/**
+		 * Constructor
+		 *
+		 * @param postings of the word
+		 */
+		private TermPositions(TermPostings postings) {
+			this.postings = postings;
+		}
+
+		@Override
+		protected int size() {
+			return postings.size();
+		}
+
+		@Override
+		protected int doc(int index) {
+			return postings.doc(index);
+		}
+
+		@Override
+		protected int frequency(int index) {
+			return postings.positions(index).size();
+		}
+
+		@Override
+		protected int[] positions(int index) {
+			return postings.positions(index).toIntArray();
+		}
+
+		@Override
+		protected boolean skipped(int doc) {
+			return deletedCount > 0 && deleted.get(doc);
+		}
+	}
+
+	/**
+	 * Prefixes class to hold the prefix dictionary of the words, with the id of
+	 * every word in it
+	 */
+	private class Prefixes {
+		/**
+		 * dictionary with the sorted words and their number of locations
+		 */
+		private final PrefixDictionary dictionary;
+
+		/**
+		 * ids of the words by their index in the dictionary
+		 */
+		private final int[] ids;
+
+		/**
+		 * Initializes the prefix dictionary from the current words
+		 */
+		private Prefixes() {
+			String[] sorted = new String[terms.size()];
+			int[] frequencies = new int[sorted.length];
+			int[] ids = new int[sorted.length];
+			int i = 0;
+			for (var entry : terms.sorted().entrySet()) {
+				// words with only removed locations are left out
+				int frequency = liveSize(invertedIndex.get(entry.getValue()));
+				if (frequency > 0) {
+					sorted[i] = entry.getKey();
+					ids[i] = entry.getValue();
+					frequencies[i] = frequency;
+					i++;
 				}
-				result.update(word);
 			}
+			this.ids = i == ids.length ? ids : Arrays.copyOf(ids, i);
+			dictionary = new PrefixDictionary(i == sorted.length ? sorted : Arrays.copyOf(sorted, i),
+					i == frequencies.length ? frequencies : Arrays.copyOf(frequencies, i));
+		}
+	}
+
+	/**
+	 * IndexView class to see the index as a sorted map of words to sorted maps of
+	 * locations to positions, resolving the ids only while iterating. Used to
+	 * write the index without building a copy of all of it.
+	 */
+	private class IndexView extends AbstractMap<String, Map<String, PostingList>> {
+		@Override
+		public Set<Entry<String, Map<String, PostingList>>> entrySet() {
+			return new AbstractSet<Entry<String, Map<String, PostingList>>>() {
+				@Override
+				public Iterator<Entry<String, Map<String, PostingList>>> iterator() {
+					var words = terms.sorted().entrySet().iterator();
+					return new Iterator<Entry<String, Map<String, PostingList>>>() {
+						@Override
+						public boolean hasNext() {
+							return words.hasNext();
+						}
+
+						@Override
+						public Entry<String, Map<String, PostingList>> next() {
+							var word = words.next();
+							var postings = invertedIndex.get(word.getValue());
+							TreeMap<String, PostingList> found = new TreeMap<String, PostingList>();
+							for (int i = 0; i < postings.size(); i++) {
+								found.put(locations.get(postings.doc(i)), postings.positions(i));
+							}
+							return Map.entry(word.getKey(), found);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return terms.size();
+				}
+			};
 		}
 	}
 
@@ -354,7 +1433,7 @@ public class InvertedIndex {
 	 * @author Noga Gottlieb
 	 *
 	 */
-	public class SearchResult implements Comparable<SearchResult> {
+	public static class SearchResult implements Comparable<SearchResult> {
 
 		/**
 		 * score to hold the score of a search object
@@ -383,11 +1462,23 @@ public class InvertedIndex {
 		/**
 		 * update method to update the query information
 		 * 
-		 * @param query to update
+		 * @param matches number of times a query word is in the location
+		 * @param words   number of words in the location
+		 */
+		void update(int matches, int words) {
+			this.count += matches;
+			this.score = (double) count / words;
+		}
+
+		/**
+		 * set method to set the query information computed by a scorer
+		 *
+		 * @param count number of times the query words are in the location
+		 * @param score of the location
 		 */
-		private void update(String query) {
-			this.count += invertedIndex.get(query).get(location).size();
-			this.score = (double) count / wordCount.get(location);
+		void set(int count, double score) {
+			this.count = count;
+			this.score = score;
 		}
 
 		/**
@@ -421,7 +1512,11 @@ public class InvertedIndex {
 			if (compareCount != 0) {
 				return compareCount;
 			}
-			return this.location.compareToIgnoreCase(other.location);
+			int compareLocation = this.location.compareToIgnoreCase(other.location);
+			if (compareLocation != 0) {
+				return compareLocation;
+			}
+			return this.location.compareTo(other.location);
 		}
 	}
 
@@ -3,20 +3,58 @@ package edu.usfca.cs272;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
+import opennlp.tools.stemmer.Stemmer;
 
 /**
  * @author Noga Gottlieb
  *
  */
 public class InvertedIndexBuilder {
+	/**
+	 * the default size in bytes of the parts a large file is split into, so a
+	 * file larger than this is indexed by several threads
+	 */
+	public static final long CHUNK_SIZE = 8 << 20;
+
+	/**
+	 * the largest number of bytes of a file mapped at a time
+	 */
+	private static final long MAP_SIZE = 1 << 28;
+
+	/**
+	 * the number of mapped bytes copied at a time to be decoded, since decoding
+	 * from an array is much faster than from a mapped buffer
+	 */
+	private static final int BYTE_BUFFER = 1 << 16;
+
+	/**
+	 * the first size of the buffer mapped bytes are decoded into, which grows for
+	 * longer lines
+	 */
+	private static final int CHAR_BUFFER = 1 << 16;
 
 	/**
 	 * build method to build a file into invertedIndex
@@ -26,12 +64,26 @@ public class InvertedIndexBuilder {
 	 * @throws IOException of needed
 	 */
 	public static void build(Path path, InvertedIndex invertedIndex) throws IOException {
+		build(path, invertedIndex, false);
+	}
+
+	/**
+	 * build method to build a file into invertedIndex
+	 * 
+	 * @param path          of file to build
+	 * @param invertedIndex to build/update
+	 * @param mmap          if true, read the files with
+	 *                      {@link #mapFile(Path, InvertedIndex)} instead of
+	 *                      {@link #buildFile(Path, InvertedIndex)}
+	 * @throws IOException of needed
+	 */
+	public static void build(Path path, InvertedIndex invertedIndex, boolean mmap) throws IOException {
 		if (Files.isRegularFile(path)) {
-			buildFile(path, invertedIndex);
+			buildFile(path, invertedIndex, mmap);
 		} else if (Files.isDirectory(path)) {
 			ArrayList<Path> paths = DirectoryTraverser.getTextFiles(path);
 			for (Path file : paths) {
-				buildFile(file, invertedIndex);
+				buildFile(file, invertedIndex, mmap);
 			}
 		}
 	}
@@ -46,20 +98,125 @@ public class InvertedIndexBuilder {
 	 */
 	public static void threadedBuild(Path input, ThreadSafeInvertedIndex invertedIndex, int threads)
 			throws IOException {
+		threadedBuild(input, invertedIndex, threads, CHUNK_SIZE, false);
+	}
+
+	/**
+	 * thread safe version of build, where every file larger than the chunk size is
+	 * split on line breaks into parts of about that size, and the parts are
+	 * indexed by several threads. The index is the same as with
+	 * {@link #buildFile(Path, InvertedIndex)}.
+	 * 
+	 * @param input         of file to build
+	 * @param invertedIndex to build/update
+	 * @param threads       number of threads
+	 * @param chunkSize     the size in bytes of the parts of large files
+	 * @throws IOException if needed
+	 */
+	public static void threadedBuild(Path input, ThreadSafeInvertedIndex invertedIndex, int threads, long chunkSize)
+			throws IOException {
+		threadedBuild(input, invertedIndex, threads, chunkSize, false);
+	}
+
+	/**
+	 * thread safe version of build, where large files are split like in
+	 * {@link #threadedBuild(Path, ThreadSafeInvertedIndex, int, long)}. A file
+	 * that can not be read is left out of the index, and once every other file is
+	 * built the first failure is thrown.
+	 * 
+	 * @param input         of file to build
+	 * @param invertedIndex to build/update
+	 * @param threads       number of threads
+	 * @param chunkSize     the size in bytes of the parts of large files
+	 * @param mmap          if true, read the files with
+	 *                      {@link #mapFile(Path, InvertedIndex)} instead of
+	 *                      {@link #buildFile(Path, InvertedIndex)}
+	 * @throws IOException if needed, or if a file or a part of a file could not
+	 *                     be read
+	 */
+	public static void threadedBuild(Path input, ThreadSafeInvertedIndex invertedIndex, int threads, long chunkSize,
+			boolean mmap) throws IOException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
 		WorkQueue tasks = new WorkQueue(threads);
+		Queue<IOException> failures = new ConcurrentLinkedQueue<IOException>();
 		try {
 			if (Files.isRegularFile(input)) {
-				tasks.execute(new Task(input, invertedIndex));
+				tasks.execute(new Task(input, invertedIndex, tasks, chunkSize, mmap, failures));
 			} else if (Files.isDirectory(input)) {
-				ArrayList<Path> paths = DirectoryTraverser.getTextFiles(input);
-				for (Path path : paths) {
-					tasks.execute(new Task(path, invertedIndex));
-				}
+				// the files are indexed while the other directories are listed
+				DirectoryTraverser.traverseDirectory(input, threads,
+						path -> tasks.execute(new Task(path, invertedIndex, tasks, chunkSize, mmap, failures)));
+			}
+		} finally {
+			tasks.finish();
+			tasks.shutdown();
+		}
+		IOException failure = failures.poll();
+		if (failure != null) {
+			for (IOException other : failures) {
+				failure.addSuppressed(other);
+			}
+			throw failure;
+		}
+	}
+
+	/**
+	 * update method to bring an index built from the input up to date, using the
+	 * manifest saved with it. Only the files that are new or changed since the
+	 * manifest was saved are read again, and the files of the input that are gone
+	 * are removed from the index. A file with the same size and modified time is
+	 * not read at all, and a file with only a new modified time is hashed but not
+	 * read again. The manifest is updated too.
+	 * 
+	 * @param input         file or directory that was built
+	 * @param invertedIndex to update
+	 * @param manifest      of the files in the index
+	 * @throws IOException if needed
+	 */
+	public static void update(Path input, InvertedIndex invertedIndex, IndexManifest manifest) throws IOException {
+		Set<String> found = ConcurrentHashMap.newKeySet();
+		if (Files.isRegularFile(input)) {
+			updateFile(input, invertedIndex, manifest);
+			found.add(input.toString());
+		} else if (Files.isDirectory(input)) {
+			for (Path file : DirectoryTraverser.getTextFiles(input)) {
+				updateFile(file, invertedIndex, manifest);
+				found.add(file.toString());
+			}
+		}
+		removeDeleted(input, found, invertedIndex, manifest);
+	}
+
+	/**
+	 * thread safe version of update
+	 * 
+	 * @param input         file or directory that was built
+	 * @param invertedIndex to update
+	 * @param manifest      of the files in the index
+	 * @param threads       number of threads
+	 * @throws IOException if needed
+	 */
+	public static void threadedUpdate(Path input, ThreadSafeInvertedIndex invertedIndex, IndexManifest manifest,
+			int threads) throws IOException {
+		Set<String> found = ConcurrentHashMap.newKeySet();
+		WorkQueue tasks = new WorkQueue(threads);
+		try {
+			if (Files.isRegularFile(input)) {
+				tasks.execute(new UpdateTask(input, invertedIndex, manifest));
+				found.add(input.toString());
+			} else if (Files.isDirectory(input)) {
+				DirectoryTraverser.traverseDirectory(input, threads, path -> {
+					tasks.execute(new UpdateTask(path, invertedIndex, manifest));
+					found.add(path.toString());
+				});
 			}
 		} finally {
 			tasks.finish();
 			tasks.shutdown();
 		}
+		removeDeleted(input, found, invertedIndex, manifest);
 	}
 
 	/**
@@ -71,19 +228,283 @@ public class InvertedIndexBuilder {
 	 */
 	public static void buildFile(Path input, InvertedIndex invertedIndex) throws IOException {
 		try (BufferedReader reader = Files.newBufferedReader(input, UTF_8);) {
-			String line;
-			int countIndex = 0;
-			SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
-			String location = input.toString();
-			while ((line = reader.readLine()) != null) {
-				String[] splitted = FileStemmer.parse(line);
-				for (String word : splitted) {
-					countIndex++;
-					word = stemmer.stem(word).toString();
-					invertedIndex.addIndex(word, location, countIndex);
+			buildLines(reader, input.toString(), 0, invertedIndex);
+		}
+	}
+
+	/**
+	 * mapFile method build an inverted index from a file, the same as
+	 * {@link #buildFile(Path, InvertedIndex)}. The file is mapped into memory and
+	 * decoded a part at a time into one buffer, and the words are read from the
+	 * buffer, so no string is made for the lines.
+	 * 
+	 * @param input         file to add to the list
+	 * @param invertedIndex with the inverted index to build
+	 * @throws IOException if needed
+	 */
+	public static void mapFile(Path input, InvertedIndex invertedIndex) throws IOException {
+		try (FileChannel channel = FileChannel.open(input)) {
+			mapLines(channel, 0, channel.size(), input.toString(), 0, invertedIndex);
+		}
+	}
+
+	/**
+	 * buildFile helper method to build an inverted index from a file with the
+	 * reader or by mapping it
+	 *
+	 * @param input         file to add to the list
+	 * @param invertedIndex with the inverted index to build
+	 * @param mmap          if true, map the file
+	 * @throws IOException if needed
+	 */
+	private static void buildFile(Path input, InvertedIndex invertedIndex, boolean mmap) throws IOException {
+		if (mmap) {
+			mapFile(input, invertedIndex);
+		} else {
+			buildFile(input, invertedIndex);
+		}
+	}
+
+	/**
+	 * updateFile helper method to index a file again if it changed since its
+	 * entry in the manifest. The index must have the number of words of the entry
+	 * for the file, so an index that was not saved with the manifest is built
+	 * again.
+	 *
+	 * @param path          of the file
+	 * @param invertedIndex to update
+	 * @param manifest      of the files in the index
+	 * @throws IOException if needed
+	 */
+	private static void updateFile(Path path, InvertedIndex invertedIndex, IndexManifest manifest)
+			throws IOException {
+		String location = path.toString();
+		// read before the content, so a change while reading is found next time
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		IndexManifest.Entry entry = manifest.get(location);
+		if (entry != null && entry.getWords() == invertedIndex.sizeCountLocation(location)) {
+			if (entry.sameFile(attributes)) {
+				return;
+			}
+			if (entry.getSize() == attributes.size()) {
+				byte[] hash = IndexManifest.hash(path);
+				if (entry.sameHash(hash)) {
+					manifest.put(location, new IndexManifest.Entry(attributes, hash, entry.getWords()));
+					return;
 				}
 			}
 		}
+
+		// the file is hashed while it is read, so the hash is of the words indexed
+		MessageDigest digest = IndexManifest.newDigest();
+		InvertedIndex local = new InvertedIndex();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new DigestInputStream(Files.newInputStream(path), digest), UTF_8.newDecoder()))) {
+			buildLines(reader, location, 0, local);
+		}
+		invertedIndex.replaceLocation(location, local);
+		manifest.put(location, new IndexManifest.Entry(attributes, digest.digest(), local.sizeCountLocation(location)));
+	}
+
+	/**
+	 * removeDeleted helper method to remove the files of the input that are in the
+	 * manifest but were not found
+	 *
+	 * @param input         file or directory that was built
+	 * @param found         with the locations of the files found
+	 * @param invertedIndex to remove the files from
+	 * @param manifest      to remove the files from
+	 */
+	private static void removeDeleted(Path input, Set<String> found, InvertedIndex invertedIndex,
+			IndexManifest manifest) {
+		for (String location : manifest.getLocations()) {
+			if (!found.contains(location) && Path.of(location).startsWith(input)) {
+				invertedIndex.removeLocation(location);
+				manifest.remove(location);
+			}
+		}
+	}
+
+	/**
+	 * buildLines helper method to add the words of every line of a reader
+	 *
+	 * @param reader        with the lines
+	 * @param location      of the words
+	 * @param position      the position before the first word
+	 * @param invertedIndex to add the words to
+	 * @return the position of the last word
+	 * @throws IOException if needed
+	 */
+	private static int buildLines(BufferedReader reader, String location, int position, InvertedIndex invertedIndex)
+			throws IOException {
+		String line;
+		int countIndex = position;
+		Stemmer stemmer = StemCache.ENGLISH;
+		while ((line = reader.readLine()) != null) {
+			countIndex = Tokenizer.tokenize(line, countIndex,
+					(word, index) -> invertedIndex.addIndex(stemmer.stem(word).toString(), location, index));
+		}
+		return countIndex;
+	}
+
+	/**
+	 * mapLines helper method to add the words of every line of a part of a file.
+	 * The lines are split at every line feed and carriage return, which gives the
+	 * lines of {@link BufferedReader#readLine()} and some empty lines, and empty
+	 * lines have no words.
+	 *
+	 * @param channel       of the file
+	 * @param start         of the part
+	 * @param end           of the part
+	 * @param location      of the words
+	 * @param position      the position before the first word
+	 * @param invertedIndex to add the words to
+	 * @return the position of the last word
+	 * @throws IOException if needed
+	 */
+	private static int mapLines(FileChannel channel, long start, long end, String location, int position,
+			InvertedIndex invertedIndex) throws IOException {
+		Stemmer stemmer = StemCache.ENGLISH;
+		Tokenizer.TokenConsumer tokens = (word, index) -> invertedIndex.addIndex(stemmer.stem(word).toString(),
+				location, index);
+		// a new decoder reports malformed input, like Files.newBufferedReader
+		CharsetDecoder decoder = UTF_8.newDecoder();
+		ByteBuffer buffer = ByteBuffer.allocate(BYTE_BUFFER);
+		CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER);
+		int countIndex = position;
+		long mapped = start;
+		while (mapped < end) {
+			long length = Math.min(MAP_SIZE, end - mapped);
+			ByteBuffer bytes = channel.map(MapMode.READ_ONLY, mapped, length);
+			mapped += length;
+			while (bytes.hasRemaining()) {
+				// the bytes of a character split between copies or maps stay in the buffer
+				int count = Math.min(buffer.remaining(), bytes.remaining());
+				buffer.put(buffer.position(), bytes, bytes.position(), count);
+				buffer.position(buffer.position() + count);
+				bytes.position(bytes.position() + count);
+				buffer.flip();
+				while (true) {
+					CoderResult result = decoder.decode(buffer, chars, false);
+					if (result.isError()) {
+						result.throwException();
+					}
+					if (result.isUnderflow()) {
+						break;
+					}
+					countIndex = tokenizeLines(chars, countIndex, tokens);
+					if (!chars.hasRemaining()) {
+						// the buffer is one line, so it grows
+						CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+						chars.flip();
+						chars = larger.put(chars);
+					}
+				}
+				buffer.compact();
+			}
+		}
+		// only the bytes of an unfinished character can be left, which are malformed
+		buffer.flip();
+		CoderResult result = decoder.decode(buffer, chars, true);
+		if (result.isError()) {
+			result.throwException();
+		}
+		decoder.flush(chars);
+		countIndex = tokenizeLines(chars, countIndex, tokens);
+		chars.flip();
+		return Tokenizer.tokenize(chars, countIndex, tokens);
+	}
+
+	/**
+	 * tokenizeLines helper method to add the words of the whole lines in a buffer,
+	 * and keep the last line, which may not be whole yet
+	 *
+	 * @param chars    the buffer, ready to be written to
+	 * @param position the position before the first word
+	 * @param tokens   to give the words to
+	 * @return the position of the last word
+	 */
+	private static int tokenizeLines(CharBuffer chars, int position, Tokenizer.TokenConsumer tokens) {
+		chars.flip();
+		char[] array = chars.array();
+		CharBuffer line = chars.duplicate();
+		int begin = 0;
+		for (int i = 0; i < chars.limit(); i++) {
+			if (array[i] == '\n' || array[i] == '\r') {
+				if (i > begin) {
+					line.limit(i).position(begin);
+					position = Tokenizer.tokenize(line, position, tokens);
+				}
+				begin = i + 1;
+			}
+		}
+		chars.position(begin);
+		chars.compact();
+		return position;
+	}
+
+	/**
+	 * split helper method to find where the parts of a file start. Every part but
+	 * the first starts after a line feed, which is never part of another UTF-8
+	 * character, so no line or character is split between parts.
+	 *
+	 * @param path      of the file
+	 * @param chunkSize the size in bytes of the parts
+	 * @return the start of every part, and then the size of the file
+	 * @throws IOException if needed
+	 */
+	private static long[] split(Path path, long chunkSize) throws IOException {
+		try (FileChannel channel = FileChannel.open(path)) {
+			long size = channel.size();
+			long[] bounds = new long[(int) Math.min(Integer.MAX_VALUE - 1, (size - 1) / chunkSize + 1) + 1];
+			int count = 1;
+			ByteBuffer buffer = ByteBuffer.allocate(8192);
+			long start = chunkSize;
+			while (start < size) {
+				long end = lineEnd(channel, start, buffer);
+				if (end - bounds[count - 1] > Integer.MAX_VALUE - 8) {
+					// a part this large does not fit in an array, so the file is not split
+					return new long[] { 0, size };
+				}
+				if (end >= size) {
+					break;
+				}
+				bounds[count++] = end;
+				start = end + chunkSize;
+			}
+			if (size - bounds[count - 1] > Integer.MAX_VALUE - 8) {
+				return new long[] { 0, size };
+			}
+			bounds[count++] = size;
+			return Arrays.copyOf(bounds, count);
+		}
+	}
+
+	/**
+	 * lineEnd helper method to find the first line feed at or after a position
+	 *
+	 * @param channel of the file
+	 * @param from    where to start looking
+	 * @param buffer  to read into
+	 * @return the position after the line feed, or the size of the file if there
+	 *         is none
+	 * @throws IOException if needed
+	 */
+	private static long lineEnd(FileChannel channel, long from, ByteBuffer buffer) throws IOException {
+		long position = from;
+		while (true) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
 	}
 
 	/**
@@ -100,27 +521,280 @@ public class InvertedIndexBuilder {
 		 */
 		private final ThreadSafeInvertedIndex threadSafeInvertedIndex;
 
+		/**
+		 * tasks to add the parts of a large file to
+		 */
+		private final WorkQueue tasks;
+
+		/**
+		 * chunkSize with the size in bytes of the parts of a large file
+		 */
+		private final long chunkSize;
+
+		/**
+		 * mmap with true if the file is mapped instead of read
+		 */
+		private final boolean mmap;
+
+		/**
+		 * failures to add the failure to if the file can not be read
+		 */
+		private final Queue<IOException> failures;
+
 		/**
 		 * Initializes a task
 		 * 
 		 * @param path                    to process
 		 * @param threadSafeInvertedIndex to build
+		 * @param tasks                   to add the parts of a large file to
+		 * @param chunkSize               the size in bytes of the parts
+		 * @param mmap                    if true, map the file instead of reading it
+		 * @param failures                to add the failure to if the file can not
+		 *                                be read
 		 */
-		public Task(Path path, ThreadSafeInvertedIndex threadSafeInvertedIndex) {
+		public Task(Path path, ThreadSafeInvertedIndex threadSafeInvertedIndex, WorkQueue tasks, long chunkSize,
+				boolean mmap, Queue<IOException> failures) {
 			this.path = path;
 			this.threadSafeInvertedIndex = threadSafeInvertedIndex;
+			this.tasks = tasks;
+			this.chunkSize = chunkSize;
+			this.mmap = mmap;
+			this.failures = failures;
 		}
 
 		@Override
 		public void run() {
 			try {
+				if (Files.size(path) > chunkSize) {
+					long[] bounds = split(path, chunkSize);
+					if (bounds.length > 2) {
+						Chunks chunks = new Chunks(path, bounds, threadSafeInvertedIndex, mmap, failures);
+						for (int part = 0; part < bounds.length - 1; part++) {
+							tasks.execute(new ChunkTask(chunks, part));
+						}
+						return;
+					}
+				}
 				InvertedIndex local = new InvertedIndex();
-				buildFile(path, local);
+				buildFile(path, local, mmap);
 				threadSafeInvertedIndex.addAll(local);
 			} catch (IOException e) {
-				throw new UncheckedIOException(e);
+				failures.add(e);
+			}
+
+		}
+	}
+
+	/**
+	 * Chunks class with the parts of a large file and their indexes. Every part is
+	 * indexed on its own with positions starting from 1, and the last part to
+	 * finish moves the positions of every part by the sum of the word counts of
+	 * the parts before it, and adds them all. If a part can not be read, the file
+	 * is not added at all.
+	 */
+	private static class Chunks {
+		/**
+		 * path of the file
+		 */
+		private final Path path;
+
+		/**
+		 * bounds with the start of every part, and then the size of the file
+		 */
+		private final long[] bounds;
+
+		/**
+		 * parts with the index of every part
+		 */
+		private final InvertedIndex[] parts;
+
+		/**
+		 * counts with the word count of every part
+		 */
+		private final int[] counts;
+
+		/**
+		 * remaining with the number of parts not indexed yet
+		 */
+		private final AtomicInteger remaining;
+
+		/**
+		 * invertedIndex to add the file to
+		 */
+		private final ThreadSafeInvertedIndex invertedIndex;
+
+		/**
+		 * mmap with true if the parts are mapped instead of read
+		 */
+		private final boolean mmap;
+
+		/**
+		 * failures to add the failure of a part to
+		 */
+		private final Queue<IOException> failures;
+
+		/**
+		 * Constructor
+		 *
+		 * @param path          of the file
+		 * @param bounds        the start of every part, and then the size of the file
+		 * @param invertedIndex to add the file to
+		 * @param mmap          if true, map the parts instead of reading them
+		 * @param failures      to add the failure of a part to
+		 */
+		private Chunks(Path path, long[] bounds, ThreadSafeInvertedIndex invertedIndex, boolean mmap,
+				Queue<IOException> failures) {
+			this.path = path;
+			this.bounds = bounds;
+			this.parts = new InvertedIndex[bounds.length - 1];
+			this.counts = new int[bounds.length - 1];
+			this.remaining = new AtomicInteger(bounds.length - 1);
+			this.invertedIndex = invertedIndex;
+			this.mmap = mmap;
+			this.failures = failures;
+		}
+
+		/**
+		 * build method to index a part, and add the file once all parts are done.
+		 * The failure of a part is added to the failures.
+		 *
+		 * @param part the number of the part
+		 */
+		private void build(int part) {
+			try {
+				InvertedIndex local = new InvertedIndex();
+				if (mmap) {
+					try (FileChannel channel = FileChannel.open(path)) {
+						counts[part] = mapLines(channel, bounds[part], bounds[part + 1], path.toString(), 0, local);
+					}
+				} else {
+					counts[part] = readLines(part, local);
+				}
+				parts[part] = local;
+			} catch (IOException e) {
+				failures.add(e);
+			} finally {
+				// counted even if the part failed, so the other parts are never waiting
+				if (remaining.decrementAndGet() == 0) {
+					addParts();
+				}
 			}
+		}
 
+		/**
+		 * addParts helper method to add the file once every part is done, unless a
+		 * part failed
+		 */
+		private void addParts() {
+			int[] offsets = new int[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				if (parts[i] == null) {
+					return;
+				}
+				if (i > 0) {
+					offsets[i] = offsets[i - 1] + counts[i - 1];
+				}
+			}
+			InvertedIndex file = new InvertedIndex();
+			file.addAll(Arrays.asList(parts), offsets);
+			invertedIndex.addAll(file);
+		}
+
+		/**
+		 * readLines helper method to read a part into memory and add its words
+		 *
+		 * @param part  the number of the part
+		 * @param local to add the words to
+		 * @return the position of the last word
+		 * @throws IOException if needed
+		 */
+		private int readLines(int part, InvertedIndex local) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate((int) (bounds[part + 1] - bounds[part]));
+			try (FileChannel channel = FileChannel.open(path)) {
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, bounds[part] + buffer.position()) < 0) {
+						break;
+					}
+				}
+			}
+			// a new decoder reports malformed input, like Files.newBufferedReader
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new ByteArrayInputStream(buffer.array(), 0, buffer.position()), UTF_8.newDecoder()))) {
+				return buildLines(reader, path.toString(), 0, local);
+			}
+		}
+	}
+
+	/**
+	 * ChunkTask class to index one part of a large file
+	 */
+	private static class ChunkTask implements Runnable {
+		/**
+		 * chunks with the parts of the file
+		 */
+		private final Chunks chunks;
+
+		/**
+		 * part with the number of the part to index
+		 */
+		private final int part;
+
+		/**
+		 * Initializes a task
+		 *
+		 * @param chunks with the parts of the file
+		 * @param part   the number of the part to index
+		 */
+		public ChunkTask(Chunks chunks, int part) {
+			this.chunks = chunks;
+			this.part = part;
+		}
+
+		@Override
+		public void run() {
+			chunks.build(part);
+		}
+	}
+
+	/**
+	 * UpdateTask class to index one file again if it changed
+	 */
+	private static class UpdateTask implements Runnable {
+		/**
+		 * path to processes
+		 */
+		private final Path path;
+
+		/**
+		 * invertedIndex to update
+		 */
+		private final ThreadSafeInvertedIndex threadSafeInvertedIndex;
+
+		/**
+		 * manifest of the files in the index
+		 */
+		private final IndexManifest manifest;
+
+		/**
+		 * Initializes a task
+		 *
+		 * @param path                    to process
+		 * @param threadSafeInvertedIndex to update
+		 * @param manifest                of the files in the index
+		 */
+		public UpdateTask(Path path, ThreadSafeInvertedIndex threadSafeInvertedIndex, IndexManifest manifest) {
+			this.path = path;
+			this.threadSafeInvertedIndex = threadSafeInvertedIndex;
+			this.manifest = manifest;
+		}
+
+		@Override
+		public void run() {
+			try {
+				updateFile(path, threadSafeInvertedIndex, manifest);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 
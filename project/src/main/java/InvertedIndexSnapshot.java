@@ -0,0 +1,554 @@
+package edu.usfca.cs272;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+
+/**
+ * InvertedIndexSnapshot class to hold an immutable, read-optimized copy of an
+ * inverted index. Words and locations are kept in sorted arrays, and the
+ * postings of all words are kept in contiguous arrays, so searching does not
+ * need any lock and does not walk any tree.
+ *
+ * Created by {@link InvertedIndex#freeze()}.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class InvertedIndexSnapshot implements IndexSearchInterface {
+	/**
+	 * terms with all the words in sorted order
+	 */
+	private final String[] terms;
+
+	/**
+	 * termStarts with the index of the first posting of every word, and the total
+	 * number of postings at the end
+	 */
+	private final int[] termStarts;
+
+	/**
+	 * docs with the location id of every posting, sorted for every word
+	 */
+	private final int[] docs;
+
+	/**
+	 * frequencies with the number of positions of every posting
+	 */
+	private final int[] frequencies;
+
+	/**
+	 * positionStarts with the offset of the encoded positions of every posting,
+	 * and the total number of bytes at the end
+	 */
+	private final int[] positionStarts;
+
+	/**
+	 * positions with the encoded positions of all postings
+	 *
+	 * @see PostingList#copyBytes(byte[], int)
+	 */
+	private final byte[] positions;
+
+	/**
+	 * locations in sorted order, the location id is the index in this array
+	 */
+	private final String[] locations;
+
+	/**
+	 * wordCount of every location by location id
+	 */
+	private final int[] wordCount;
+
+	/**
+	 * counts with the precomputed word count map
+	 */
+	private final Map<String, Integer> counts;
+
+	/**
+	 * statistics of the whole snapshot for scorers
+	 */
+	private final Scorer.Statistics statistics;
+
+	/**
+	 * prefixes with the prefix dictionary of the words
+	 */
+	private final PrefixDictionary prefixes;
+
+	/**
+	 * bounds with the upper bound of the score of every word
+	 */
+	private final double[] bounds;
+
+	/**
+	 * Constructor
+	 *
+	 * @param builder with the data to use
+	 */
+	private InvertedIndexSnapshot(Builder builder) {
+		this.terms = builder.terms.toArray(new String[0]);
+		this.termStarts = Arrays.copyOf(builder.termStarts, terms.length + 1);
+		this.termStarts[terms.length] = builder.postings;
+		this.docs = Arrays.copyOf(builder.docs, builder.postings);
+		this.frequencies = Arrays.copyOf(builder.frequencies, builder.postings);
+		this.positionStarts = Arrays.copyOf(builder.positionStarts, builder.postings + 1);
+		this.positionStarts[builder.postings] = builder.bytes;
+		this.positions = Arrays.copyOf(builder.positions, builder.bytes);
+		this.locations = builder.locations;
+		this.wordCount = builder.wordCount;
+
+		TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+		long totalWords = 0;
+		for (int doc = 0; doc < locations.length; doc++) {
+			counts.put(locations[doc], wordCount[doc]);
+			totalWords += wordCount[doc];
+		}
+		this.counts = Collections.unmodifiableMap(counts);
+		this.statistics = new Scorer.Statistics(locations.length, totalWords);
+
+		int[] frequencies = new int[terms.length];
+		for (int term = 0; term < terms.length; term++) {
+			frequencies[term] = termStarts[term + 1] - termStarts[term];
+		}
+		this.prefixes = new PrefixDictionary(terms, frequencies);
+
+		this.bounds = new double[terms.length];
+		for (int term = 0; term < terms.length; term++) {
+			for (int i = termStarts[term]; i < termStarts[term + 1]; i++) {
+				bounds[term] = Math.max(bounds[term], (double) this.frequencies[i] / wordCount[docs[i]]);
+			}
+		}
+	}
+
+	@Override
+	public List<SearchResult> exactSearch(Set<String> queries) {
+		return search(queries, true, Scorer.CURRENT);
+	}
+
+	@Override
+	public List<SearchResult> partialSearch(Set<String> queries) {
+		return search(queries, false, Scorer.CURRENT);
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		List<SearchResult> results;
+		if (scorer == Scorer.CURRENT) {
+			matchingTerms(queries, exact, term -> searchLogic(term, accumulator));
+			results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc]);
+		} else {
+			matchingTerms(queries, exact, term -> scoreLogic(term, scorer, accumulator));
+			results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc], scorer);
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, int k) {
+		List<TermCursor> cursors = new ArrayList<TermCursor>();
+		matchingTerms(queries, exact, term -> cursors.add(new TermCursor(term)));
+		return TopKSearch.search(cursors, doc -> locations[doc], doc -> wordCount[doc], k);
+	}
+
+	@Override
+	public List<SearchResult> search(PhraseQuery query, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		matchingTerms(query.getWords(), exact, term -> searchLogic(term, accumulator));
+		query.match(word -> {
+			int term = Arrays.binarySearch(terms, word);
+			return term < 0 ? null : new TermPositions(term);
+		}, accumulator);
+		List<SearchResult> results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc]);
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(BooleanQuery query, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		query.match(word -> {
+			List<PostingsReader> readers = new ArrayList<PostingsReader>();
+			matchingTerms(Set.of(word), exact, term -> readers.add(new TermPositions(term)));
+			return readers;
+		}, accumulator);
+		List<SearchResult> results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc]);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * matchingTerms helper method to call an action for the index of every word
+	 * that matches a query
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param action  to call with every word index
+	 */
+	private void matchingTerms(Set<String> queries, boolean exact, IntConsumer action) {
+		for (String query : queries) {
+			if (exact) {
+				int term = Arrays.binarySearch(terms, query);
+				if (term >= 0) {
+					action.accept(term);
+				}
+			} else {
+				int end = prefixes.end(query);
+				for (int term = prefixes.first(query); term < end; term++) {
+					action.accept(term);
+				}
+			}
+		}
+	}
+
+	/**
+	 * TermCursor class to read the postings of a word for {@link TopKSearch}
+	 */
+	private class TermCursor extends TopKSearch.Cursor {
+		/**
+		 * Constructor
+		 *
+		 * @param term index of the word
+		 */
+		private TermCursor(int term) {
+			super(termStarts[term], termStarts[term + 1], bounds[term]);
+		}
+
+		@Override
+		protected int doc(int index) {
+			return docs[index];
+		}
+
+		@Override
+		protected int frequency(int index) {
+			return frequencies[index];
+		}
+	}
+
+	/**
+	 * TermPositions class to read the postings of a word for {@link PhraseQuery}
+	 * and {@link BooleanQuery}
+	 */
+	private class TermPositions extends PostingsReader {
+		/**
+		 * start with the index of the first posting of the word
+		 */
+		private final int start;
+
+		/**
+		 * size with the number of postings of the word
+		 */
+		private final int size;
+
+		/**
+		 * Constructor
+		 *
+		 * @param term index of the word
+		 */
+		private TermPositions(int term) {
+			this.start = termStarts[term];
+			this.size = termStarts[term + 1] - start;
+		}
+
+		@Override
+		protected int size() {
+			return size;
+		}
+
+		@Override
+		protected int doc(int index) {
+			return docs[start + index];
+		}
+
+		@Override
+		protected int frequency(int index) {
+			return frequencies[start + index];
+		}
+
+		@Override
+		protected int[] positions(int index) {
+			return PostingList.decode(positions, positionStarts[start + index], frequencies[start + index]);
+		}
+	}
+
+	/**
+	 * searchLogic helper method that holds the common logic for exact search and
+	 * partial search
+	 *
+	 * @param term        index of the word to add the matches of
+	 * @param accumulator to add the matches to
+	 */
+	private void searchLogic(int term, ScoreAccumulator accumulator) {
+		for (int i = termStarts[term]; i < termStarts[term + 1]; i++) {
+			accumulator.add(docs[i], frequencies[i]);
+		}
+	}
+
+	/**
+	 * scoreLogic helper method to add the matches of a word with their scores
+	 *
+	 * @param term        index of the word to add the matches of
+	 * @param scorer      to score the word with
+	 * @param accumulator to add the matches to
+	 */
+	private void scoreLogic(int term, Scorer scorer, ScoreAccumulator accumulator) {
+		int documentFrequency = termStarts[term + 1] - termStarts[term];
+		for (int i = termStarts[term]; i < termStarts[term + 1]; i++) {
+			accumulator.add(docs[i], frequencies[i],
+					scorer.score(frequencies[i], wordCount[docs[i]], documentFrequency, statistics));
+		}
+	}
+
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		return prefixes.complete(prefix, limit);
+	}
+
+	@Override
+	public Map<String, Integer> getCounts() {
+		return counts;
+	}
+
+	/**
+	 * getWords method to get all words in the snapshot
+	 *
+	 * @return unmodifiable sorted list of the words
+	 */
+	public List<String> getWords() {
+		return Collections.unmodifiableList(Arrays.asList(terms));
+	}
+
+	/**
+	 * hasWord method if there is the word in the snapshot
+	 *
+	 * @param word to check
+	 * @return true if the word was found
+	 */
+	public boolean hasWord(String word) {
+		return Arrays.binarySearch(terms, word) >= 0;
+	}
+
+	/**
+	 * getIndexes method get a set of all indexes of a word and location
+	 *
+	 * @param word     to find the index for
+	 * @param location of the source
+	 * @return the set of indexes the word appear at in this source
+	 */
+	public Set<Integer> getIndexes(String word, String location) {
+		int term = Arrays.binarySearch(terms, word);
+		int doc = Arrays.binarySearch(locations, location);
+		if (term >= 0 && doc >= 0) {
+			int i = Arrays.binarySearch(docs, termStarts[term], termStarts[term + 1], doc);
+			if (i >= 0) {
+				return Collections.unmodifiableSet(new PostingList(positions, positionStarts[i],
+						positionStarts[i + 1] - positionStarts[i], frequencies[i]));
+			}
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * wordsSize method to get the number of words
+	 *
+	 * @return the number of words in the snapshot
+	 */
+	public int wordsSize() {
+		return terms.length;
+	}
+
+	/**
+	 * sizeCounts method to get the number of locations
+	 *
+	 * @return the number of locations in the snapshot
+	 */
+	public int sizeCounts() {
+		return locations.length;
+	}
+
+	/**
+	 * write method to write the snapshot into a segment file, that can be searched
+	 * from disk with {@link SegmentIndex}
+	 *
+	 * @param path to write into
+	 * @throws IOException when IO error accrue
+	 */
+	public void write(Path path) throws IOException {
+		byte[][] termBytes = new byte[terms.length][];
+		int[] termOffsets = new int[terms.length + 1];
+		for (int term = 0; term < terms.length; term++) {
+			termBytes[term] = terms[term].getBytes(StandardCharsets.UTF_8);
+			termOffsets[term + 1] = termOffsets[term] + termBytes[term].length;
+		}
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 20))) {
+			out.writeInt(SegmentIndex.MAGIC);
+			out.writeInt(SegmentIndex.VERSION);
+			out.writeInt(locations.length);
+			out.writeInt(terms.length);
+			out.writeInt(docs.length);
+			out.writeInt(termOffsets[terms.length]);
+			out.writeInt(positions.length);
+			for (String location : locations) {
+				byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			for (int count : wordCount) {
+				out.writeInt(count);
+			}
+			// the arrays start at a multiple of 4, so they can be read as ints
+			while (out.size() % Integer.BYTES != 0) {
+				out.writeByte(0);
+			}
+			for (int[] array : new int[][] { termOffsets, termStarts, docs, frequencies, positionStarts }) {
+				for (int value : array) {
+					out.writeInt(value);
+				}
+			}
+			for (byte[] bytes : termBytes) {
+				out.write(bytes);
+			}
+			out.write(positions);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "InvertedIndexSnapshot[words=" + terms.length + ", locations=" + locations.length + ", postings="
+				+ docs.length + "]";
+	}
+
+	/**
+	 * Builder class to collect the data of a snapshot. Words must be added in
+	 * sorted order, and the postings of every word by increasing location id.
+	 */
+	public static class Builder {
+		/**
+		 * locations in sorted order
+		 */
+		private final String[] locations;
+
+		/**
+		 * wordCount of every location
+		 */
+		private final int[] wordCount;
+
+		/**
+		 * terms added so far
+		 */
+		private final ArrayList<String> terms;
+
+		/**
+		 * termStarts of the added words
+		 */
+		private int[] termStarts;
+
+		/**
+		 * docs of the added postings
+		 */
+		private int[] docs;
+
+		/**
+		 * frequencies of the added postings
+		 */
+		private int[] frequencies;
+
+		/**
+		 * positionStarts of the added postings
+		 */
+		private int[] positionStarts;
+
+		/**
+		 * positions of the added postings
+		 */
+		private byte[] positions;
+
+		/**
+		 * postings with the number of postings added
+		 */
+		private int postings;
+
+		/**
+		 * bytes with the number of position bytes added
+		 */
+		private int bytes;
+
+		/**
+		 * Initializes a builder
+		 *
+		 * @param locations all locations in sorted order
+		 * @param wordCount the word count of every location
+		 */
+		public Builder(String[] locations, int[] wordCount) {
+			this.locations = locations;
+			this.wordCount = wordCount;
+			this.terms = new ArrayList<String>();
+			this.termStarts = new int[16];
+			this.docs = new int[16];
+			this.frequencies = new int[16];
+			this.positionStarts = new int[17];
+			this.positions = new byte[64];
+			this.postings = 0;
+			this.bytes = 0;
+		}
+
+		/**
+		 * addTerm method to start the postings of the next word
+		 *
+		 * @param term the next word, larger than all words added before
+		 */
+		public void addTerm(String term) {
+			if (terms.size() == termStarts.length) {
+				termStarts = Arrays.copyOf(termStarts, termStarts.length * 2);
+			}
+			termStarts[terms.size()] = postings;
+			terms.add(term);
+		}
+
+		/**
+		 * addPosting method to add the positions of the current word in a location
+		 *
+		 * @param doc  the location id, larger than the last one of this word
+		 * @param list the positions of the word in the location
+		 */
+		public void addPosting(int doc, PostingList list) {
+			if (postings == docs.length) {
+				docs = Arrays.copyOf(docs, postings * 2);
+				frequencies = Arrays.copyOf(frequencies, postings * 2);
+				positionStarts = Arrays.copyOf(positionStarts, postings * 2 + 1);
+			}
+			if (bytes + list.byteSize() > positions.length) {
+				positions = Arrays.copyOf(positions, Math.max(bytes + list.byteSize(), positions.length * 2));
+			}
+			docs[postings] = doc;
+			frequencies[postings] = list.size();
+			positionStarts[postings] = bytes;
+			bytes = list.copyBytes(positions, bytes);
+			postings++;
+		}
+
+		/**
+		 * build method to create the snapshot
+		 *
+		 * @return the snapshot with all the added data
+		 */
+		public InvertedIndexSnapshot build() {
+			return new InvertedIndexSnapshot(this);
+		}
+	}
+}
@@ -538,14 +538,14 @@ public class JsonWriter {
 			if (iterator.hasNext()) {
 				var v = iterator.next();
 				writer.write("\n");
-				writer.write("  \"" + v.getKey() + "\": ");
+				writer.write("  \"" + v.getKey().replace("\"", "\\\"") + "\": ");
 				writeSetSearch(v.getValue(), writer, indent + 1);
 
 			}
 			while (iterator.hasNext()) {
 				var v = iterator.next();
 				writer.write(",\n");
-				writer.write("  \"" + v.getKey() + "\": ");
+				writer.write("  \"" + v.getKey().replace("\"", "\\\"") + "\": ");
 				writeSetSearch(v.getValue(), writer, indent + 1);
 			}
 
@@ -7,8 +7,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 /**
  * Finds HTTP(S) URLs from the anchor tags within HTML code.
@@ -34,25 +33,118 @@ public class LinkFinder {
 	 * @throws MalformedURLException when needed
 	 * @throws URISyntaxException    when needed
 	 *
-	 * @see Pattern#compile(String)
-	 * @see Matcher#find()
-	 * @see Matcher#group(int)
+	 * @see #findHrefs(char[], int, Collection)
 	 * @see #normalize(URL)
 	 * @see #isHttp(URL)
 	 */
 	public static void findUrls(URL base, String html, Collection<URL> urls)
 			throws MalformedURLException, URISyntaxException {
-		String regex = "<a[^>]*(href\\s*=\\s*\"([^\"]*?)\")";
-		Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-		Matcher matcher = pattern.matcher(html);
-		while (matcher.find()) {
-			URL url = new URL(base, matcher.group(2));
+		ArrayList<String> hrefs = new ArrayList<String>();
+		findHrefs(html.toCharArray(), html.length(), hrefs);
+		findUrls(base, hrefs, urls);
+	}
+
+	/**
+	 * Adds the valid HTTP(S) URLs of the HREF attributes found in HTML.
+	 *
+	 * @param base  the base URL used to convert relative URLs to absolute
+	 * @param hrefs the values of the HREF attributes
+	 * @param urls  the data structure to store found HTTP(S) URLs
+	 * @throws MalformedURLException when needed
+	 * @throws URISyntaxException    when needed
+	 */
+	public static void findUrls(URL base, List<String> hrefs, Collection<URL> urls)
+			throws MalformedURLException, URISyntaxException {
+		for (String href : hrefs) {
+			URL url = new URL(base, href);
 			if (isHttp(url)) {
 				urls.add(normalize(url));
 			}
 		}
 	}
 
+	/**
+	 * findHrefs method to find the values of the HREF attributes of the anchor
+	 * tags, the same as the regular expression
+	 * {@code <a[^>]*(href\s*=\s*"([^"]*?)")} ignoring case. Like the regular
+	 * expression, the last HREF before the {@code >} of a tag is found, and the
+	 * HTML is read once instead of backtracking.
+	 *
+	 * @param html   the HTML
+	 * @param length of the HTML in the array
+	 * @param hrefs  to add the values to
+	 */
+	static void findHrefs(char[] html, int length, Collection<String> hrefs) {
+		int i = indexOfAnchor(html, length, 0);
+		while (i >= 0) {
+			int end = HtmlCleaner.indexOf(html, length, '>', i + 2);
+			if (end < 0) {
+				end = length;
+			}
+			// the last href of the tag, or the one before it if its value does not end
+			int value = -1;
+			int close = -1;
+			for (int p = end - 4; p >= i + 2 && close < 0; p--) {
+				int quote = href(html, length, p);
+				if (quote >= 0) {
+					value = quote + 1;
+					close = HtmlCleaner.indexOf(html, length, '"', value);
+				}
+			}
+			if (close < 0) {
+				// an anchor before the end of this tag has no other href
+				i = indexOfAnchor(html, length, end);
+				continue;
+			}
+			hrefs.add(new String(html, value, close - value));
+			i = indexOfAnchor(html, length, close + 1);
+		}
+	}
+
+	/**
+	 * indexOfAnchor helper method to find the start of an anchor tag
+	 *
+	 * @param html   the HTML
+	 * @param length of the HTML in the array
+	 * @param from   where to start looking
+	 * @return the index of {@code <a} ignoring case, or -1 if there is none
+	 */
+	private static int indexOfAnchor(char[] html, int length, int from) {
+		for (int i = HtmlCleaner.indexOf(html, length, '<', from); i >= 0; i = HtmlCleaner.indexOf(html, length, '<', i + 1)) {
+			if (HtmlCleaner.matches(html, length, "a", i + 1)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * href helper method to check if an HREF attribute starts at an index
+	 *
+	 * @param html   the HTML
+	 * @param length of the HTML in the array
+	 * @param index  where the attribute would start
+	 * @return the index of the quote that starts the value, or -1 if there is no
+	 *         attribute
+	 */
+	private static int href(char[] html, int length, int index) {
+		if (!HtmlCleaner.matches(html, length, "href", index)) {
+			return -1;
+		}
+		int i = index + 4;
+		while (i < length && HtmlCleaner.isSpace(html[i])) {
+			i++;
+		}
+		if (i == length || html[i] != '=') {
+			return -1;
+		}
+		i++;
+		while (i < length && HtmlCleaner.isSpace(html[i])) {
+			i++;
+		}
+		return i < length && html[i] == '"' ? i : -1;
+	}
+
 	/**
 	 * Returns a list of all the valid HTTP(S) URLs found in the HREF attribute of
 	 * the anchor tags in the provided HTML.
@@ -71,6 +163,25 @@ public class LinkFinder {
 		return urls;
 	}
 
+	/**
+	 * Returns a list of all the valid HTTP(S) URLs of the HREF attributes found in
+	 * HTML.
+	 *
+	 * @param base  the base URL used to convert relative URLs to absolute
+	 * @param hrefs the values of the HREF attributes
+	 * @return list of all valid HTTP(S) URLs in the order they were found
+	 * @throws URISyntaxException    when needed
+	 * @throws MalformedURLException when needed
+	 *
+	 * @see #findUrls(URL, List, Collection)
+	 */
+	public static ArrayList<URL> listUrls(URL base, List<String> hrefs)
+			throws MalformedURLException, URISyntaxException {
+		ArrayList<URL> urls = new ArrayList<URL>();
+		findUrls(base, hrefs, urls);
+		return urls;
+	}
+
 	/**
 	 * Returns a set of all the unique valid HTTP(S) URLs found in the HREF
 	 * attribute of the anchor tags in the provided HTML.
@@ -0,0 +1,58 @@
+package edu.usfca.cs272;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * PageProcessor class to process a fetched page in one stage. The HTML is read
+ * once with {@link HtmlScanner}, and the same scan gives both the normalized
+ * links of the page and its stemmed words.
+ *
+ * A page often links to the same HREF many times, so every HREF value is made
+ * into a URL and normalized once. The words are stemmed and given to the
+ * consumer as they are found, so no list of the words is created.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class PageProcessor {
+	/**
+	 * Private constructor, the class only has static methods
+	 */
+	private PageProcessor() {
+	}
+
+	/**
+	 * process method to find the links and the stemmed words of a page. The links
+	 * are given before the words, so they can be crawled even if the text of the
+	 * page can not be read.
+	 *
+	 * @param base    the normalized URL of the page
+	 * @param html    of the page
+	 * @param stemmer to stem the words with
+	 * @param links   to give the valid HTTP(S) links to, normalized and in the
+	 *                order they were first found
+	 * @param stems   to give every stem and its position to, starting from 1
+	 * @return the number of words
+	 * @throws URISyntaxException       when needed
+	 * @throws MalformedURLException    when needed
+	 * @throws IllegalArgumentException if a numeric entity is not a valid
+	 *                                  character
+	 */
+	public static int process(URL base, String html, Stemmer stemmer, Consumer<List<URL>> links,
+			ObjIntConsumer<String> stems) throws MalformedURLException, URISyntaxException {
+		HtmlScanner page = new HtmlScanner(html);
+		List<String> hrefs = new ArrayList<String>(new LinkedHashSet<String>(page.getHrefs()));
+		links.accept(LinkFinder.listUrls(base, hrefs));
+		return Tokenizer.tokenize(page.getText(), 0,
+				(word, position) -> stems.accept(stemmer.stem(word).toString(), position));
+	}
+}
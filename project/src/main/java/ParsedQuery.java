@@ -0,0 +1,140 @@
+package edu.usfca.cs272;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * ParsedQuery class to hold a query line parsed once. A line with quotes or
+ * NEAR/ is a {@link PhraseQuery}, else a line with an operator is a
+ * {@link BooleanQuery}, else it is the unique stems of its words. The query
+ * searches do not parse the line themselves, so the key of the results and the
+ * search always agree on what kind of query the line is.
+ *
+ * @author Noga Gottlieb
+ */
+public class ParsedQuery {
+	/**
+	 * phrase query, or null
+	 */
+	private final PhraseQuery phrase;
+
+	/**
+	 * bool with the boolean query, or null
+	 */
+	private final BooleanQuery bool;
+
+	/**
+	 * words with the stems of a normal query, or null
+	 */
+	private final TreeSet<String> words;
+
+	/**
+	 * key of the results of the query
+	 */
+	private final String key;
+
+	/**
+	 * Constructor, only one of the queries is not null
+	 *
+	 * @param phrase the phrase query, or null
+	 * @param bool   the boolean query, or null
+	 * @param words  the stems of a normal query, or null
+	 */
+	private ParsedQuery(PhraseQuery phrase, BooleanQuery bool, TreeSet<String> words) {
+		this.phrase = phrase;
+		this.bool = bool;
+		this.words = words;
+		this.key = phrase != null ? phrase.toString() : bool != null ? bool.toString() : String.join(" ", words);
+	}
+
+	/**
+	 * parse method to parse a query line using the default stemmer for English
+	 *
+	 * @param line of query to parse
+	 * @return the query
+	 */
+	public static ParsedQuery parse(String line) {
+		return parse(line, StemCache.ENGLISH);
+	}
+
+	/**
+	 * parse method to parse a query line
+	 *
+	 * @param line    of query to parse
+	 * @param stemmer to stem the words with
+	 * @return the query
+	 */
+	public static ParsedQuery parse(String line, Stemmer stemmer) {
+		PhraseQuery phrase = PhraseQuery.parse(line, stemmer);
+		if (phrase != null) {
+			return new ParsedQuery(phrase, null, null);
+		}
+		BooleanQuery bool = BooleanQuery.parse(line, stemmer);
+		if (bool != null) {
+			return new ParsedQuery(null, bool, null);
+		}
+		return new ParsedQuery(null, null, FileStemmer.uniqueStems(line, stemmer));
+	}
+
+	/**
+	 * isEmpty method to check if the query has no words to search for
+	 *
+	 * @return true if the key is empty
+	 */
+	public boolean isEmpty() {
+		return key.isEmpty();
+	}
+
+	/**
+	 * search method to search an index for the query
+	 *
+	 * @param index  to search
+	 * @param exact  if true, process exact search, if false, process partial
+	 *               search
+	 * @param scorer to rank the results of a normal query with
+	 * @return the results
+	 */
+	public List<SearchResult> search(IndexSearchInterface index, boolean exact, Scorer scorer) {
+		// phrases and operators are ranked by the number of matches
+		if (phrase != null) {
+			return index.search(phrase, exact);
+		}
+		if (bool != null) {
+			return index.search(bool, exact);
+		}
+		return index.search(words, exact, scorer);
+	}
+
+	/**
+	 * search method to search an index for only the best results of the query.
+	 * Normal queries ranked by the current score are searched with
+	 * {@link IndexSearchInterface#search(Set, boolean, int)}, the others are cut
+	 * from all their results.
+	 *
+	 * @param index  to search
+	 * @param exact  if true, process exact search, if false, process partial
+	 *               search
+	 * @param scorer to rank the results of a normal query with
+	 * @param k      the maximum number of results
+	 * @return the first k results
+	 */
+	public List<SearchResult> search(IndexSearchInterface index, boolean exact, Scorer scorer, int k) {
+		if (words != null && scorer == Scorer.CURRENT) {
+			return index.search(words, exact, k);
+		}
+		return TopKSearch.first(search(index, exact, scorer), k);
+	}
+
+	/**
+	 * @return the query in the same form for every way of writing it, used as the
+	 *         key of the results
+	 */
+	@Override
+	public String toString() {
+		return key;
+	}
+}
@@ -0,0 +1,390 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * PhraseQuery class to hold a query line that uses the positions of the words.
+ * A quoted phrase ("foo bar") matches where its words are next to each other in
+ * order, and foo NEAR/3 bar matches where the two words are at most 3 positions
+ * apart in any order. The other words of the line are searched like in any
+ * other query.
+ *
+ * A location matches if any part of the query matches, like the words of a
+ * normal query. The count of a phrase is the number of times it is found, so
+ * the score is still the number of matches divided by the word count.
+ *
+ * The postings of the words of a phrase are intersected by location first,
+ * galloping through the longer lists, and the positions are only read for the
+ * locations that have all the words.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class PhraseQuery {
+	/**
+	 * the proximity operator, NEAR/ and the largest distance between the words
+	 */
+	private static final Pattern NEAR = Pattern.compile("NEAR/([1-9][0-9]{0,5})");
+
+	/**
+	 * words searched like in a normal query
+	 */
+	private final TreeSet<String> words;
+
+	/**
+	 * clauses with the phrases and proximity parts, by their text
+	 */
+	private final TreeMap<String, Clause> clauses;
+
+	/**
+	 * Constructor
+	 *
+	 * @param words   searched like in a normal query
+	 * @param clauses with the phrases and proximity parts
+	 */
+	public PhraseQuery(Set<String> words, List<Clause> clauses) {
+		this.words = new TreeSet<String>(words);
+		this.clauses = new TreeMap<String, Clause>();
+		for (Clause clause : clauses) {
+			this.clauses.put(clause.toString(), clause);
+		}
+	}
+
+	/**
+	 * parse method to parse a query line using the default stemmer for English
+	 *
+	 * @param line of query to parse
+	 * @return the query, or null if the line has no phrase or proximity part
+	 */
+	public static PhraseQuery parse(String line) {
+		return parse(line, StemCache.ENGLISH);
+	}
+
+	/**
+	 * parse method to parse a query line. Every part between quotes is a phrase,
+	 * and a missing closing quote ends the phrase at the end of the line. NEAR/n
+	 * is only an operator between two words outside of quotes, otherwise it is
+	 * searched as a normal word.
+	 *
+	 * @param line    of query to parse
+	 * @param stemmer to stem the words with
+	 * @return the query, or null if the line has no phrase or proximity part
+	 */
+	public static PhraseQuery parse(String line, Stemmer stemmer) {
+		if (line.indexOf('"') < 0 && !line.contains("NEAR/")) {
+			return null;
+		}
+		TreeSet<String> words = new TreeSet<String>();
+		List<Clause> clauses = new ArrayList<Clause>();
+		String[] parts = line.split("\"", -1);
+		for (int i = 0; i < parts.length; i++) {
+			if (i % 2 == 1) {
+				List<String> phrase = FileStemmer.listStems(parts[i], stemmer);
+				if (!phrase.isEmpty()) {
+					clauses.add(new Clause(phrase, 0));
+				}
+			} else {
+				parseWords(parts[i], stemmer, words, clauses);
+			}
+		}
+		if (clauses.isEmpty()) {
+			return null;
+		}
+		return new PhraseQuery(words, clauses);
+	}
+
+	/**
+	 * parseWords helper method to parse the words outside of quotes
+	 *
+	 * @param text    outside of quotes
+	 * @param stemmer to stem the words with
+	 * @param words   to add the normal words to
+	 * @param clauses to add the proximity parts to
+	 */
+	private static void parseWords(String text, Stemmer stemmer, Set<String> words, List<Clause> clauses) {
+		// the stems of every token, with null for an operator and its distance
+		List<String> stems = new ArrayList<String>();
+		List<String> tokens = new ArrayList<String>();
+		List<Integer> distances = new ArrayList<Integer>();
+		for (String token : FileStemmer.split(text)) {
+			Matcher matcher = NEAR.matcher(token);
+			if (matcher.matches()) {
+				stems.add(null);
+				tokens.add(token);
+				distances.add(Integer.parseInt(matcher.group(1)));
+			} else {
+				for (String stem : FileStemmer.listStems(token, stemmer)) {
+					stems.add(stem);
+					tokens.add(token);
+					distances.add(0);
+				}
+			}
+		}
+
+		boolean[] used = new boolean[stems.size()];
+		for (int i = 0; i < stems.size(); i++) {
+			if (stems.get(i) == null) {
+				used[i] = true;
+				if (i > 0 && i + 1 < stems.size() && stems.get(i - 1) != null && stems.get(i + 1) != null) {
+					clauses.add(new Clause(List.of(stems.get(i - 1), stems.get(i + 1)), distances.get(i)));
+					used[i - 1] = true;
+					used[i + 1] = true;
+				} else {
+					words.addAll(FileStemmer.listStems(tokens.get(i), stemmer));
+				}
+			}
+		}
+		for (int i = 0; i < stems.size(); i++) {
+			if (!used[i]) {
+				words.add(stems.get(i));
+			}
+		}
+	}
+
+	/**
+	 * getWords method to get the words searched like in a normal query
+	 *
+	 * @return unmodifiable sorted set of the words
+	 */
+	public Set<String> getWords() {
+		return Collections.unmodifiableSet(words);
+	}
+
+	/**
+	 * getClauses method to get the phrases and proximity parts
+	 *
+	 * @return unmodifiable list of the clauses, sorted by their text
+	 */
+	public List<Clause> getClauses() {
+		return Collections.unmodifiableList(new ArrayList<Clause>(clauses.values()));
+	}
+
+	/**
+	 * withoutWords method to get the same query with only the phrases and
+	 * proximity parts
+	 *
+	 * @return a new query with no normal words
+	 */
+	public PhraseQuery withoutWords() {
+		return new PhraseQuery(Collections.emptySet(), getClauses());
+	}
+
+	/**
+	 * match method to add the matches of all phrases and proximity parts
+	 *
+	 * @param postings    to get the postings of a word, or null if the word is
+	 *                    not in the index
+	 * @param accumulator to add the number of times every clause is found in a
+	 *                    location to
+	 */
+	public void match(Function<String, PostingsReader> postings, ScoreAccumulator accumulator) {
+		for (Clause clause : clauses.values()) {
+			PostingsReader[] lists = new PostingsReader[clause.words.size()];
+			boolean missing = false;
+			for (int i = 0; i < lists.length && !missing; i++) {
+				lists[i] = postings.apply(clause.words.get(i));
+				missing = lists[i] == null || lists[i].size() == 0;
+			}
+			if (!missing) {
+				intersect(clause, lists, accumulator);
+			}
+		}
+	}
+
+	/**
+	 * intersect helper method to find the locations that have all the words of a
+	 * clause, and count the clause in each of them. The shortest list leads, and
+	 * the other lists gallop to its locations.
+	 *
+	 * @param clause      to count
+	 * @param lists       the postings of the words of the clause
+	 * @param accumulator to add the counts to
+	 */
+	private static void intersect(Clause clause, PostingsReader[] lists, ScoreAccumulator accumulator) {
+		Integer[] order = new Integer[lists.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingInt((Integer i) -> lists[i].size()));
+		PostingsReader lead = lists[order[0]];
+		int[] index = new int[lists.length];
+		int[][] positions = new int[lists.length][];
+
+		int doc = lead.size() > 0 ? lead.doc(0) : Integer.MAX_VALUE;
+		while (doc != Integer.MAX_VALUE) {
+			int target = doc;
+			for (int i = 0; i < order.length && target == doc; i++) {
+				int list = order[i];
+				index[list] = lists[list].gallop(index[list], doc);
+				target = index[list] < lists[list].size() ? lists[list].doc(index[list]) : Integer.MAX_VALUE;
+			}
+			if (target == doc) {
+				if (!lead.skipped(doc)) {
+					for (int i = 0; i < lists.length; i++) {
+						positions[i] = lists[i].positions(index[i]);
+					}
+					int count = clause.count(positions);
+					if (count > 0) {
+						accumulator.add(doc, count);
+					}
+				}
+				target = doc + 1;
+			}
+			index[order[0]] = lead.gallop(index[order[0]], target);
+			doc = index[order[0]] < lead.size() ? lead.doc(index[order[0]]) : Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * gallop helper method to find the first position at or after an index that
+	 * is not smaller than a target
+	 *
+	 * @param positions sorted positions
+	 * @param from      index to start from
+	 * @param target    the position
+	 * @return index of the position, or the length if there is none
+	 */
+	private static int gallop(int[] positions, int from, int target) {
+		if (from >= positions.length || positions[from] >= target) {
+			return from;
+		}
+		int low = from;
+		int step = 1;
+		while (low + step < positions.length && positions[low + step] < target) {
+			low += step;
+			step <<= 1;
+		}
+		int high = Math.min(low + step, positions.length);
+		int index = Arrays.binarySearch(positions, low + 1, high, target);
+		return index < 0 ? -(index + 1) : index;
+	}
+
+	/**
+	 * @return the query in the same form for every way of writing it, used as the
+	 *         key of the results
+	 */
+	@Override
+	public String toString() {
+		TreeSet<String> parts = new TreeSet<String>(clauses.keySet());
+		parts.addAll(words);
+		return String.join(" ", parts);
+	}
+
+	/**
+	 * Clause class with a phrase, or two words that must be near each other
+	 */
+	public static class Clause {
+		/**
+		 * words of the phrase in order, or the two words near each other
+		 */
+		private final List<String> words;
+
+		/**
+		 * distance with the largest number of positions between two words near each
+		 * other, or 0 for a phrase
+		 */
+		private final int distance;
+
+		/**
+		 * Constructor
+		 *
+		 * @param words    of the phrase in order, or the two words near each other
+		 * @param distance the largest number of positions between the two words, or
+		 *                 0 for a phrase
+		 */
+		public Clause(List<String> words, int distance) {
+			if (distance > 0 && words.size() != 2) {
+				throw new IllegalArgumentException("NEAR needs two words: " + words);
+			}
+			List<String> copy = new ArrayList<String>(words);
+			if (distance > 0) {
+				// the order does not matter, so both orders are the same clause
+				Collections.sort(copy);
+			}
+			this.words = Collections.unmodifiableList(copy);
+			this.distance = distance;
+		}
+
+		/**
+		 * getWords method to get the words of the clause
+		 *
+		 * @return unmodifiable list of the words
+		 */
+		public List<String> getWords() {
+			return words;
+		}
+
+		/**
+		 * count helper method to count the clause in one location. A phrase is
+		 * counted once for every position it starts at, and two words near each other
+		 * once for every position of the first word with the second word near it.
+		 *
+		 * @param positions the sorted positions of every word in the location
+		 * @return the number of times the clause is found
+		 */
+		private int count(int[][] positions) {
+			int count = 0;
+			if (distance == 0) {
+				// the rarest word is checked first, so it moves the start the most
+				Integer[] order = new Integer[positions.length];
+				for (int i = 0; i < order.length; i++) {
+					order[i] = i;
+				}
+				Arrays.sort(order, Comparator.comparingInt((Integer i) -> positions[i].length));
+				int[] index = new int[positions.length];
+				int start = positions[order[0]][0] - order[0];
+				while (true) {
+					boolean found = true;
+					for (int j = 0; j < order.length && found; j++) {
+						int i = order[j];
+						index[i] = gallop(positions[i], index[i], start + i);
+						if (index[i] == positions[i].length) {
+							return count;
+						}
+						int next = positions[i][index[i]] - i;
+						if (next > start) {
+							start = next;
+							found = false;
+						}
+					}
+					if (found) {
+						count++;
+						start++;
+					}
+				}
+			}
+			int[] first = positions[0];
+			int[] second = positions[1];
+			int index = 0;
+			for (int position : first) {
+				index = gallop(second, index, position - distance);
+				// the same word can be near itself, but not at the same position
+				int near = index < second.length && second[index] == position ? index + 1 : index;
+				if (near < second.length && second[near] <= position + distance) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public String toString() {
+			if (distance == 0) {
+				return "\"" + String.join(" ", words) + "\"";
+			}
+			return words.get(0) + " NEAR/" + distance + " " + words.get(1);
+		}
+	}
+}
@@ -0,0 +1,428 @@
+package edu.usfca.cs272;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * PostingList class to hold the sorted positions of a word in one location.
+ * Positions are stored as delta-encoded variable length integers (7 bits per
+ * byte) in a growable byte array, so a typical position costs one or two bytes
+ * instead of a boxed {@link Integer} inside a tree node.
+ *
+ * The set is read-only through the {@link java.util.Set} interface; positions
+ * are added with {@link #addPosition(int)} and {@link #addAll(PostingList)}.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class PostingList extends AbstractSet<Integer> {
+	/**
+	 * initial capacity of the byte array
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * bytes with the encoded deltas
+	 */
+	private byte[] bytes;
+
+	/**
+	 * length of the used part of bytes
+	 */
+	private int length;
+
+	/**
+	 * size with the number of positions
+	 */
+	private int size;
+
+	/**
+	 * last (largest) position in the list
+	 */
+	private int last;
+
+	/**
+	 * Constructor
+	 */
+	public PostingList() {
+		bytes = new byte[INITIAL_CAPACITY];
+		length = 0;
+		size = 0;
+		last = 0;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param positions sorted positions to encode
+	 * @param size      the number of positions to use from the array
+	 */
+	public PostingList(int[] positions, int size) {
+		this.bytes = new byte[Math.max(INITIAL_CAPACITY, size)];
+		encode(positions, size);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param encoded array with positions encoded by another posting list
+	 * @param offset  where the encoded positions start
+	 * @param length  number of encoded bytes
+	 * @param size    number of encoded positions
+	 *
+	 * @see #copyBytes(byte[], int)
+	 */
+	public PostingList(byte[] encoded, int offset, int length, int size) {
+		this.bytes = Arrays.copyOfRange(encoded, offset, offset + length);
+		this.length = length;
+		this.size = size;
+		PositionIterator iterator = iterator();
+		while (iterator.hasNext()) {
+			this.last = iterator.nextInt();
+		}
+	}
+
+	/**
+	 * addPosition method to add a position to the list. Appending a position larger
+	 * than all the others is the fast path, any other position is merged in order.
+	 *
+	 * @param position to add
+	 * @return true if the position was not already in the list
+	 */
+	public boolean addPosition(int position) {
+		if (size == 0 || position > last) {
+			append(position);
+			return true;
+		}
+		if (contains(position)) {
+			return false;
+		}
+		int[] positions = toArray(size + 1);
+		int index = Arrays.binarySearch(positions, 0, size, position);
+		int insert = -(index + 1);
+		System.arraycopy(positions, insert, positions, insert + 1, size - insert);
+		positions[insert] = position;
+		encode(positions, size + 1);
+		return true;
+	}
+
+	/**
+	 * addAll method to merge all positions from another list into this list
+	 *
+	 * @param other list to add
+	 * @return true if this list was modified
+	 */
+	public boolean addAll(PostingList other) {
+		return addAll(other, 0);
+	}
+
+	/**
+	 * addAll method to merge all positions from another list into this list, each
+	 * position moved by an offset. Only the first position is encoded again when
+	 * the moved positions come after this list, the other deltas are copied.
+	 *
+	 * @param other  list to add
+	 * @param offset added to every position of the other list
+	 * @return true if this list was modified
+	 */
+	public boolean addAll(PostingList other, int offset) {
+		if (other.size == 0) {
+			return false;
+		}
+		if (size == 0 || other.first() + offset > last) {
+			PositionIterator iterator = other.iterator();
+			append(iterator.nextInt() + offset);
+			int delta = other.length - iterator.offset;
+			ensureCapacity(length + delta);
+			System.arraycopy(other.bytes, iterator.offset, bytes, length, delta);
+			length += delta;
+			size += other.size - 1;
+			last = other.last + offset;
+			return true;
+		}
+		int[] merged = new int[size + other.size];
+		PositionIterator mine = iterator();
+		PositionIterator theirs = other.iterator();
+		int count = 0;
+		int a = mine.nextInt();
+		int b = theirs.nextInt() + offset;
+		while (true) {
+			if (a < b) {
+				merged[count++] = a;
+				if (!mine.hasNext()) {
+					merged[count++] = b;
+					break;
+				}
+				a = mine.nextInt();
+			} else if (b < a) {
+				merged[count++] = b;
+				if (!theirs.hasNext()) {
+					merged[count++] = a;
+					break;
+				}
+				b = theirs.nextInt() + offset;
+			} else {
+				merged[count++] = a;
+				if (!mine.hasNext() || !theirs.hasNext()) {
+					break;
+				}
+				a = mine.nextInt();
+				b = theirs.nextInt() + offset;
+			}
+		}
+		while (mine.hasNext()) {
+			merged[count++] = mine.nextInt();
+		}
+		while (theirs.hasNext()) {
+			merged[count++] = theirs.nextInt() + offset;
+		}
+		if (count == size) {
+			return false;
+		}
+		encode(merged, count);
+		return true;
+	}
+
+	/**
+	 * first method to get the smallest position in the list
+	 *
+	 * @return the smallest position
+	 * @throws NoSuchElementException if the list is empty
+	 */
+	public int first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return iterator().nextInt();
+	}
+
+	/**
+	 * last method to get the largest position in the list
+	 *
+	 * @return the largest position
+	 * @throws NoSuchElementException if the list is empty
+	 */
+	public int last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return last;
+	}
+
+	/**
+	 * toIntArray method to decode all positions
+	 *
+	 * @return a new sorted array with all the positions
+	 */
+	public int[] toIntArray() {
+		return toArray(size);
+	}
+
+	/**
+	 * decode method to decode positions encoded by a posting list, without
+	 * creating a list for them
+	 *
+	 * @param encoded array with positions encoded by a posting list
+	 * @param offset  where the encoded positions start
+	 * @param size    number of encoded positions
+	 * @return a new sorted array with the positions
+	 *
+	 * @see #copyBytes(byte[], int)
+	 */
+	public static int[] decode(byte[] encoded, int offset, int size) {
+		int[] positions = new int[size];
+		int current = 0;
+		for (int i = 0; i < size; i++) {
+			int delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = encoded[offset++];
+				delta |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			current = i == 0 ? delta : current + delta;
+			positions[i] = current;
+		}
+		return positions;
+	}
+
+	/**
+	 * byteSize method to get the number of bytes used by the encoded positions
+	 *
+	 * @return number of encoded bytes
+	 */
+	public int byteSize() {
+		return length;
+	}
+
+	/**
+	 * copyBytes method to copy the encoded positions into an array
+	 *
+	 * @param target array to copy into, with at least {@link #byteSize()} bytes
+	 *               after the offset
+	 * @param offset where to start copying
+	 * @return the offset after the copied bytes
+	 */
+	public int copyBytes(byte[] target, int offset) {
+		System.arraycopy(bytes, 0, target, offset, length);
+		return offset + length;
+	}
+
+	/**
+	 * trim method to release the unused capacity of the byte array
+	 */
+	public void trim() {
+		if (bytes.length > length) {
+			bytes = Arrays.copyOf(bytes, length);
+		}
+	}
+
+	@Override
+	public PositionIterator iterator() {
+		return new PositionIterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+
+	/**
+	 * contains method to check if a position is in the list
+	 *
+	 * @param position to look for
+	 * @return true if the position is in the list
+	 */
+	public boolean contains(int position) {
+		if (size == 0 || position > last) {
+			return false;
+		}
+		PositionIterator iterator = iterator();
+		while (iterator.hasNext()) {
+			int current = iterator.nextInt();
+			if (current >= position) {
+				return current == position;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * toArray helper method to decode all positions into an array with extra room
+	 *
+	 * @param capacity the length of the array to return
+	 * @return array with the decoded positions at the start
+	 */
+	private int[] toArray(int capacity) {
+		int[] positions = new int[capacity];
+		PositionIterator iterator = iterator();
+		for (int i = 0; i < size; i++) {
+			positions[i] = iterator.nextInt();
+		}
+		return positions;
+	}
+
+	/**
+	 * encode helper method to replace the list with the given sorted positions
+	 *
+	 * @param positions sorted positions to encode
+	 * @param count     number of positions to encode
+	 */
+	private void encode(int[] positions, int count) {
+		length = 0;
+		size = 0;
+		last = 0;
+		for (int i = 0; i < count; i++) {
+			append(positions[i]);
+		}
+	}
+
+	/**
+	 * append helper method to write a position larger than the current last
+	 *
+	 * @param position to append
+	 */
+	private void append(int position) {
+		int delta = size == 0 ? position : position - last;
+		ensureCapacity(length + 5);
+		while ((delta & ~0x7F) != 0) {
+			bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		bytes[length++] = (byte) delta;
+		last = position;
+		size++;
+	}
+
+	/**
+	 * ensureCapacity helper method to grow the byte array when needed
+	 *
+	 * @param capacity the minimum capacity needed
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length + (bytes.length >> 1)));
+		}
+	}
+
+	/**
+	 * PositionIterator class to decode the positions in order. Read-only, the
+	 * iterator does not support remove.
+	 */
+	public class PositionIterator implements PrimitiveIterator.OfInt {
+		/**
+		 * offset of the next byte to decode
+		 */
+		private int offset;
+
+		/**
+		 * current position
+		 */
+		private int current;
+
+		/**
+		 * number of positions returned so far
+		 */
+		private int returned;
+
+		/**
+		 * Initializes the iterator at the first position
+		 */
+		private PositionIterator() {
+			offset = 0;
+			current = 0;
+			returned = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return returned < size;
+		}
+
+		@Override
+		public int nextInt() {
+			if (returned >= size) {
+				throw new NoSuchElementException();
+			}
+			int delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[offset++];
+				delta |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			current = returned == 0 ? delta : current + delta;
+			returned++;
+			return current;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package edu.usfca.cs272;
+
+/**
+ * PostingsReader class to read the postings of a word for the queries that
+ * need more than the number of matches, like phrases and Boolean queries. The
+ * location ids are in increasing order, so the postings of several words can be
+ * intersected by galloping through them.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public abstract class PostingsReader {
+	/**
+	 * size method to get the number of postings
+	 *
+	 * @return the number of postings
+	 */
+	protected abstract int size();
+
+	/**
+	 * doc method to get the location id of a posting
+	 *
+	 * @param index of the posting
+	 * @return the location id
+	 */
+	protected abstract int doc(int index);
+
+	/**
+	 * frequency method to get the number of positions of a posting
+	 *
+	 * @param index of the posting
+	 * @return the number of positions
+	 */
+	protected abstract int frequency(int index);
+
+	/**
+	 * positions method to decode the positions of a posting
+	 *
+	 * @param index of the posting
+	 * @return sorted array of the positions
+	 */
+	protected abstract int[] positions(int index);
+
+	/**
+	 * skipped method to check if a location should be skipped, like a removed
+	 * location
+	 *
+	 * @param doc the location id
+	 * @return true if the location is skipped
+	 */
+	protected boolean skipped(int doc) {
+		return false;
+	}
+
+	/**
+	 * gallop method to find the first posting at or after an index with a
+	 * location id that is not smaller than a target. Doubles the step until it
+	 * passes the target and then searches back, so a target far ahead costs a
+	 * logarithmic number of reads instead of a scan.
+	 *
+	 * @param from   index to start from
+	 * @param target the location id
+	 * @return index of the posting, or the size if there is none
+	 */
+	public int gallop(int from, int target) {
+		int end = size();
+		if (from >= end || doc(from) >= target) {
+			return from;
+		}
+		int low = from;
+		int step = 1;
+		while (low + step < end && doc(low + step) < target) {
+			low += step;
+			step <<= 1;
+		}
+		int high = Math.min(low + step, end);
+		while (low + 1 < high) {
+			int middle = (low + high) >>> 1;
+			if (doc(middle) < target) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return high;
+	}
+}
@@ -0,0 +1,213 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * PrefixDictionary class to find all words that start with a prefix. The words
+ * are kept in one sorted array, so all completions of a prefix are one range
+ * of it, found with two binary searches. The most common completions are found
+ * with a tree of the largest document frequency of every part of the array, in
+ * time that depends on the number of completions returned and not on the number
+ * of completions the prefix has.
+ *
+ * Immutable and safe to use from many threads.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class PrefixDictionary {
+	/**
+	 * terms with the words in sorted order
+	 */
+	private final String[] terms;
+
+	/**
+	 * frequencies with the number of locations of every word
+	 */
+	private final int[] frequencies;
+
+	/**
+	 * tree with the index of the most frequent word of every part of the array,
+	 * where node 1 is the whole array and node i has children 2i and 2i + 1
+	 */
+	private final int[] tree;
+
+	/**
+	 * Constructor
+	 *
+	 * @param terms       the words in sorted order, not copied
+	 * @param frequencies the number of locations of every word, not copied
+	 */
+	public PrefixDictionary(String[] terms, int[] frequencies) {
+		this.terms = terms;
+		this.frequencies = frequencies;
+		this.tree = new int[Math.max(1, 4 * terms.length)];
+		if (terms.length > 0) {
+			build(1, 0, terms.length - 1);
+		}
+	}
+
+	/**
+	 * size method to get the number of words
+	 *
+	 * @return number of words
+	 */
+	public int size() {
+		return terms.length;
+	}
+
+	/**
+	 * get method to get the word at an index
+	 *
+	 * @param index of the word in sorted order
+	 * @return the word
+	 */
+	public String get(int index) {
+		return terms[index];
+	}
+
+	/**
+	 * frequency method to get the number of locations of the word at an index
+	 *
+	 * @param index of the word in sorted order
+	 * @return the number of locations of the word
+	 */
+	public int frequency(int index) {
+		return frequencies[index];
+	}
+
+	/**
+	 * first method to find the first word that starts with a prefix
+	 *
+	 * @param prefix to look for
+	 * @return index of the first completion, which is also the end of the range if
+	 *         there are no completions
+	 */
+	public int first(String prefix) {
+		int index = Arrays.binarySearch(terms, prefix);
+		return index < 0 ? -(index + 1) : index;
+	}
+
+	/**
+	 * end method to find the end of the words that start with a prefix
+	 *
+	 * @param prefix to look for
+	 * @return index after the last completion
+	 */
+	public int end(String prefix) {
+		int low = first(prefix);
+		int high = terms.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (terms[middle].startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * complete method to get all words that start with a prefix
+	 *
+	 * @param prefix to complete
+	 * @return unmodifiable sorted list of the completions
+	 */
+	public List<String> complete(String prefix) {
+		return Collections.unmodifiableList(Arrays.asList(terms).subList(first(prefix), end(prefix)));
+	}
+
+	/**
+	 * complete method to get the most common words that start with a prefix,
+	 * ordered by number of locations and then by word
+	 *
+	 * @param prefix to complete
+	 * @param limit  the maximum number of completions to return
+	 * @return list of the completions
+	 */
+	public List<String> complete(String prefix, int limit) {
+		List<String> completions = new ArrayList<String>();
+		int first = first(prefix);
+		int end = end(prefix);
+		if (first >= end || limit <= 0) {
+			return completions;
+		}
+
+		// ranges of the array ordered by their most frequent word
+		PriorityQueue<int[]> ranges = new PriorityQueue<int[]>((a, b) -> {
+			int compare = Integer.compare(frequencies[b[2]], frequencies[a[2]]);
+			return compare != 0 ? compare : Integer.compare(a[2], b[2]);
+		});
+		ranges.add(new int[] { first, end - 1, max(1, 0, terms.length - 1, first, end - 1) });
+		while (!ranges.isEmpty() && completions.size() < limit) {
+			int[] range = ranges.poll();
+			int best = range[2];
+			completions.add(terms[best]);
+			if (range[0] < best) {
+				ranges.add(new int[] { range[0], best - 1, max(1, 0, terms.length - 1, range[0], best - 1) });
+			}
+			if (best < range[1]) {
+				ranges.add(new int[] { best + 1, range[1], max(1, 0, terms.length - 1, best + 1, range[1]) });
+			}
+		}
+		return completions;
+	}
+
+	/**
+	 * build helper method to fill the tree
+	 *
+	 * @param node  the node to fill
+	 * @param left  the first index the node covers
+	 * @param right the last index the node covers
+	 */
+	private void build(int node, int left, int right) {
+		if (left == right) {
+			tree[node] = left;
+			return;
+		}
+		int middle = (left + right) >>> 1;
+		build(2 * node, left, middle);
+		build(2 * node + 1, middle + 1, right);
+		tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+	}
+
+	/**
+	 * max helper method to find the most frequent word in a range
+	 *
+	 * @param node  the current node
+	 * @param left  the first index the node covers
+	 * @param right the last index the node covers
+	 * @param from  the first index of the range
+	 * @param to    the last index of the range
+	 * @return index of the most frequent word, the first one if there is a tie
+	 */
+	private int max(int node, int left, int right, int from, int to) {
+		if (from <= left && right <= to) {
+			return tree[node];
+		}
+		int middle = (left + right) >>> 1;
+		if (to <= middle) {
+			return max(2 * node, left, middle, from, to);
+		}
+		if (from > middle) {
+			return max(2 * node + 1, middle + 1, right, from, to);
+		}
+		return better(max(2 * node, left, middle, from, to), max(2 * node + 1, middle + 1, right, from, to));
+	}
+
+	/**
+	 * better helper method to choose the more frequent of two words
+	 *
+	 * @param a index of a word
+	 * @param b index of a word after a
+	 * @return the index of the more frequent word, or a if they are equal
+	 */
+	private int better(int a, int b) {
+		return frequencies[b] > frequencies[a] ? b : a;
+	}
+}
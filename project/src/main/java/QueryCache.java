@@ -0,0 +1,245 @@
+package edu.usfca.cs272;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+
+/**
+ * QueryCache class to keep the results of recent searches, so a query that is
+ * searched again is not searched in the index again. The cache is bounded by a
+ * number of entries and by an estimate of the bytes used by the results, and
+ * the least recently used entry is removed first.
+ *
+ * Every entry has the version of the index it was found in. When the index
+ * changes all older entries are removed, so a search never returns results from
+ * before a change.
+ *
+ * All methods are synchronized, so the cache can be shared by many threads.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class QueryCache {
+	/**
+	 * the default maximum number of entries
+	 */
+	public static final int DEFAULT_ENTRIES = 1000;
+
+	/**
+	 * estimate of the bytes used by an entry with no results, without the key
+	 */
+	private static final long ENTRY_BYTES = 96;
+
+	/**
+	 * estimate of the bytes used by one result and its reference in the list. The
+	 * location string is shared with the index, so it is not counted.
+	 */
+	private static final long RESULT_BYTES = 36;
+
+	/**
+	 * entries by key, in the order they were last used
+	 */
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * maxEntries with the largest number of entries
+	 */
+	private final int maxEntries;
+
+	/**
+	 * maxBytes with the largest estimated number of bytes of all entries
+	 */
+	private final long maxBytes;
+
+	/**
+	 * bytes with the estimated number of bytes of all entries
+	 */
+	private long bytes;
+
+	/**
+	 * version of the index of all entries
+	 */
+	private long version;
+
+	/**
+	 * hits with the number of searches found in the cache
+	 */
+	private long hits;
+
+	/**
+	 * misses with the number of searches not found in the cache
+	 */
+	private long misses;
+
+	/**
+	 * evictions with the number of entries removed to stay within the bounds
+	 */
+	private long evictions;
+
+	/**
+	 * invalidations with the number of entries removed because the index changed
+	 */
+	private long invalidations;
+
+	/**
+	 * Constructor
+	 */
+	public QueryCache() {
+		this(DEFAULT_ENTRIES, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxEntries the largest number of entries
+	 * @param maxBytes   the largest estimated number of bytes of all entries
+	 */
+	public QueryCache(int maxEntries, long maxBytes) {
+		if (maxEntries < 0 || maxBytes < 0) {
+			throw new IllegalArgumentException("Cache size must not be negative");
+		}
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * get method to get the results of a search
+	 *
+	 * @param key     of the search
+	 * @param version the current version of the index
+	 * @return the results, or null if they are not in the cache
+	 */
+	public synchronized List<SearchResult> get(String key, long version) {
+		checkVersion(version);
+		Entry entry = version == this.version ? entries.get(key) : null;
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.results;
+	}
+
+	/**
+	 * put method to add the results of a search. Results found in an older
+	 * version of the index than the cache are not added.
+	 *
+	 * @param key     of the search
+	 * @param version the version of the index read before the search
+	 * @param results of the search, which must not be changed after
+	 */
+	public synchronized void put(String key, long version, List<SearchResult> results) {
+		checkVersion(version);
+		if (version != this.version) {
+			return;
+		}
+		Entry entry = new Entry(results, ENTRY_BYTES + 2L * key.length() + RESULT_BYTES * results.size());
+		if (entry.bytes > maxBytes || maxEntries == 0) {
+			return;
+		}
+		Entry old = entries.put(key, entry);
+		if (old != null) {
+			bytes -= old.bytes;
+		}
+		bytes += entry.bytes;
+
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > maxEntries || bytes > maxBytes) {
+			bytes -= iterator.next().bytes;
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * checkVersion helper method to remove all entries when the index has a newer
+	 * version than them
+	 *
+	 * @param version the version of the index
+	 */
+	private void checkVersion(long version) {
+		if (version > this.version) {
+			invalidations += entries.size();
+			entries.clear();
+			bytes = 0;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * clear method to remove all entries
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * size method to get the number of entries
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * bytes method to get the estimated number of bytes of all entries
+	 *
+	 * @return estimated number of bytes
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * getMetrics method to get the counts of the cache
+	 *
+	 * @return map from the name of every count to its value
+	 */
+	public synchronized Map<String, Long> getMetrics() {
+		Map<String, Long> metrics = new LinkedHashMap<String, Long>();
+		metrics.put("hits", hits);
+		metrics.put("misses", misses);
+		metrics.put("evictions", evictions);
+		metrics.put("invalidations", invalidations);
+		metrics.put("entries", (long) entries.size());
+		metrics.put("bytes", bytes);
+		return metrics;
+	}
+
+	@Override
+	public String toString() {
+		return getMetrics().toString();
+	}
+
+	/**
+	 * Entry class with the results of a search and their estimated size
+	 */
+	private static class Entry {
+		/**
+		 * results of the search
+		 */
+		private final List<SearchResult> results;
+
+		/**
+		 * bytes with the estimated size of the entry
+		 */
+		private final long bytes;
+
+		/**
+		 * Constructor
+		 *
+		 * @param results of the search
+		 * @param bytes   the estimated size of the entry
+		 */
+		private Entry(List<SearchResult> results, long bytes) {
+			this.results = results;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -6,12 +6,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import edu.usfca.cs272.InvertedIndex.SearchResult;
 import opennlp.tools.stemmer.Stemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
 
 /**
  * QuerySearch class that perform search on the invertedIndax
@@ -20,9 +17,9 @@ import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
  */
 public class QuerySearch implements QuerySearchInterface {
 	/**
-	 * inverted to hold the invertedIndex data
+	 * inverted to hold the index to search
 	 */
-	private final InvertedIndex inverted;
+	private final IndexSearchInterface inverted;
 	/**
 	 * searchData to hold the search results information
 	 */
@@ -34,12 +31,28 @@ public class QuerySearch implements QuerySearchInterface {
 	private final Stemmer stemmer;
 
 	/**
-	 * @param invertedIndex with the invertedIndex data
+	 * scorer to rank the results with
 	 */
-	public QuerySearch(InvertedIndex invertedIndex) {
+	private final Scorer scorer;
+
+	/**
+	 * @param invertedIndex with the index to search, such as an
+	 *                      {@link InvertedIndex} or a frozen
+	 *                      {@link InvertedIndexSnapshot}
+	 */
+	public QuerySearch(IndexSearchInterface invertedIndex) {
+		this(invertedIndex, Scorer.CURRENT);
+	}
+
+	/**
+	 * @param invertedIndex with the index to search
+	 * @param scorer        to rank the results with
+	 */
+	public QuerySearch(IndexSearchInterface invertedIndex, Scorer scorer) {
 		inverted = invertedIndex;
 		searchData = new TreeMap<String, List<SearchResult>>();
-		stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+		stemmer = StemCache.ENGLISH;
+		this.scorer = scorer;
 	}
 
 	/**
@@ -51,13 +64,10 @@ public class QuerySearch implements QuerySearchInterface {
 	 */
 	@Override
 	public void processQueryLine(String line, boolean exact) {
-		TreeSet<String> query = FileStemmer.uniqueStems(line, stemmer);
-		if (!query.isEmpty()) {
-			String joined = String.join(" ", query);
-			if (!searchData.containsKey(joined)) {
-				List<SearchResult> results = inverted.search(query, exact);
-				searchData.put(joined, results);
-			}
+		ParsedQuery query = ParsedQuery.parse(line, stemmer);
+		String joined = query.toString();
+		if (!joined.isEmpty() && !searchData.containsKey(joined)) {
+			searchData.put(joined, query.search(inverted, exact, scorer));
 		}
 	}
 
@@ -91,9 +101,8 @@ public class QuerySearch implements QuerySearchInterface {
 	 */
 	@Override
 	public List<SearchResult> getResults(String queryLine) {
-		TreeSet<String> query = FileStemmer.uniqueStems(queryLine, stemmer);
-		if (!query.isEmpty()) {
-			String joined = String.join(" ", query);
+		String joined = ParsedQuery.parse(queryLine, stemmer).toString();
+		if (!joined.isEmpty()) {
 			var results = searchData.get(joined);
 			if (results != null) {
 				return Collections.unmodifiableList(results);
@@ -0,0 +1,217 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+
+/**
+ * ScoreAccumulator class to add up the number of matches of a search in an
+ * array by location id. A search result is created only once for every location
+ * found, when the search is done, so the score is divided once per location
+ * instead of once per word and location.
+ *
+ * Every thread reuses its own accumulator, so a search does not allocate the
+ * arrays again. Only the locations that were found are cleared after a search.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class ScoreAccumulator {
+	/**
+	 * the accumulator of every thread
+	 */
+	private static final ThreadLocal<ScoreAccumulator> LOCAL = ThreadLocal.withInitial(ScoreAccumulator::new);
+
+	/**
+	 * counts with the number of matches by location id
+	 */
+	private int[] counts;
+
+	/**
+	 * sums with the sum of the scores of the words by location id, only used by
+	 * scorers other than {@link Scorer#CURRENT}
+	 */
+	private double[] sums;
+
+	/**
+	 * found with the location ids that have matches, in the order they were found
+	 */
+	private int[] found;
+
+	/**
+	 * size with the number of locations found
+	 */
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public ScoreAccumulator() {
+		counts = new int[16];
+		sums = new double[16];
+		found = new int[16];
+		size = 0;
+	}
+
+	/**
+	 * get method to get the empty accumulator of the current thread. The
+	 * accumulator must not be used by a search inside another search.
+	 *
+	 * @return the accumulator
+	 */
+	public static ScoreAccumulator get() {
+		ScoreAccumulator accumulator = LOCAL.get();
+		accumulator.clear();
+		return accumulator;
+	}
+
+	/**
+	 * add method to add the matches of a word in a location
+	 *
+	 * @param doc       the location id
+	 * @param frequency number of positions of the word in the location, more than
+	 *                  zero
+	 */
+	public void add(int doc, int frequency) {
+		if (doc >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(doc + 1, counts.length * 2));
+		}
+		if (counts[doc] == 0) {
+			if (size == found.length) {
+				found = Arrays.copyOf(found, size * 2);
+			}
+			found[size++] = doc;
+		}
+		counts[doc] += frequency;
+	}
+
+	/**
+	 * add method to add the matches of a word in a location, with the score of the
+	 * word
+	 *
+	 * @param doc       the location id
+	 * @param frequency number of positions of the word in the location, more than
+	 *                  zero
+	 * @param score     of the word in the location
+	 */
+	public void add(int doc, int frequency, double score) {
+		add(doc, frequency);
+		if (doc >= sums.length) {
+			sums = Arrays.copyOf(sums, counts.length);
+		}
+		sums[doc] += score;
+	}
+
+	/**
+	 * remove method to remove the matches of a location, so it is not in the
+	 * results. Only used after all matches were added, since a location added
+	 * again after it was removed would be found twice.
+	 *
+	 * @param doc the location id
+	 */
+	public void remove(int doc) {
+		if (doc < counts.length) {
+			counts[doc] = 0;
+		}
+	}
+
+	/**
+	 * results method to create the search results of all locations found, and
+	 * clear the accumulator
+	 *
+	 * @param locations to get a location by its id
+	 * @param words     to get the word count of a location by its id
+	 * @return unsorted list of search results, one for every location found
+	 */
+	public List<SearchResult> results(IntFunction<String> locations, IntUnaryOperator words) {
+		List<SearchResult> results = new ArrayList<SearchResult>(size);
+		for (int i = 0; i < size; i++) {
+			int doc = found[i];
+			if (counts[doc] == 0) {
+				continue;
+			}
+			SearchResult result = new SearchResult(locations.apply(doc));
+			result.update(counts[doc], words.applyAsInt(doc));
+			results.add(result);
+		}
+		clear();
+		return results;
+	}
+
+	/**
+	 * results method to create the search results of all locations found with the
+	 * scores added up by a scorer, and clear the accumulator
+	 *
+	 * @param locations to get a location by its id
+	 * @param words     to get the word count of a location by its id, or null to
+	 *                  keep the sums of the scores without finishing them
+	 * @param scorer    that scored the words
+	 * @return unsorted list of search results, one for every location found
+	 */
+	public List<SearchResult> results(IntFunction<String> locations, IntUnaryOperator words, Scorer scorer) {
+		List<SearchResult> results = new ArrayList<SearchResult>(size);
+		for (int i = 0; i < size; i++) {
+			int doc = found[i];
+			if (counts[doc] == 0) {
+				continue;
+			}
+			SearchResult result = new SearchResult(locations.apply(doc));
+			double sum = doc < sums.length ? sums[doc] : 0;
+			result.set(counts[doc], words == null ? sum : scorer.total(sum, counts[doc], words.applyAsInt(doc)));
+			results.add(result);
+		}
+		clear();
+		return results;
+	}
+
+	/**
+	 * top method to create the search results of only the best k locations found,
+	 * and clear the accumulator. A search result is only created for a location
+	 * that can still make the best k.
+	 *
+	 * @param k         the maximum number of results
+	 * @param locations to get a location by its id
+	 * @param words     to get the word count of a location by its id
+	 * @return sorted list of the best k search results
+	 */
+	public List<SearchResult> top(int k, IntFunction<String> locations, IntUnaryOperator words) {
+		// the head of the heap is the worst of the best results
+		PriorityQueue<SearchResult> best = new PriorityQueue<SearchResult>(k + 1, Collections.reverseOrder());
+		for (int i = 0; i < size; i++) {
+			int doc = found[i];
+			int length = words.applyAsInt(doc);
+			if (counts[doc] == 0 || best.size() == k && (double) counts[doc] / length < best.peek().getScore()) {
+				continue;
+			}
+			SearchResult result = new SearchResult(locations.apply(doc));
+			result.update(counts[doc], length);
+			best.add(result);
+			if (best.size() > k) {
+				best.poll();
+			}
+		}
+		clear();
+		List<SearchResult> results = new ArrayList<SearchResult>(best);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * clear method to remove all matches
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			counts[found[i]] = 0;
+			if (found[i] < sums.length) {
+				sums[found[i]] = 0;
+			}
+		}
+		size = 0;
+	}
+}
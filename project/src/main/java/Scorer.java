@@ -0,0 +1,193 @@
+package edu.usfca.cs272;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scorer interface to rank the locations of a search. Every word found in a
+ * location gets a score, and the scores of the words are added up and finished
+ * into the score of the location.
+ *
+ * The statistics a scorer needs are kept by the index as it changes, so scoring
+ * does not read the index again at search time. The number of locations of a
+ * word includes locations that were removed and not compacted yet.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public interface Scorer {
+	/**
+	 * the score the index has always used, the number of matches divided by the
+	 * number of words in the location
+	 */
+	public static final Scorer CURRENT = new Current();
+
+	/**
+	 * TF-IDF, the frequency of every word divided by the number of words in the
+	 * location, times the inverse document frequency of the word
+	 */
+	public static final Scorer TF_IDF = new TfIdf();
+
+	/**
+	 * Okapi BM25 with the usual k1 = 1.2 and b = 0.75
+	 */
+	public static final Scorer BM25 = new Bm25();
+
+	/**
+	 * score method to get the score of a word in a location
+	 *
+	 * @param frequency         number of times the word is in the location
+	 * @param length            number of words in the location
+	 * @param documentFrequency number of locations the word is in
+	 * @param statistics        of the whole index
+	 * @return the score of the word
+	 */
+	public double score(int frequency, int length, int documentFrequency, Statistics statistics);
+
+	/**
+	 * total method to get the score of a location from the scores of its words
+	 *
+	 * @param sum    of the scores of the words found in the location
+	 * @param count  number of matches in the location
+	 * @param length number of words in the location
+	 * @return the score of the location
+	 */
+	public default double total(double sum, int count, int length) {
+		return sum;
+	}
+
+	/**
+	 * forName method to get a scorer by its name
+	 *
+	 * @param name of the scorer, "current", "tfidf" or "bm25"
+	 * @return the scorer, or null if there is no scorer with this name
+	 */
+	public static Scorer forName(String name) {
+		return scorers().get(name);
+	}
+
+	/**
+	 * scorers method to get all scorers by name
+	 *
+	 * @return sorted map from name to scorer
+	 */
+	public static Map<String, Scorer> scorers() {
+		TreeMap<String, Scorer> scorers = new TreeMap<String, Scorer>();
+		for (Scorer scorer : new Scorer[] { CURRENT, TF_IDF, BM25 }) {
+			scorers.put(scorer.toString(), scorer);
+		}
+		return scorers;
+	}
+
+	/**
+	 * Current class with the score the index has always used
+	 */
+	public static class Current implements Scorer {
+		@Override
+		public double score(int frequency, int length, int documentFrequency, Statistics statistics) {
+			return frequency;
+		}
+
+		@Override
+		public double total(double sum, int count, int length) {
+			return (double) count / length;
+		}
+
+		@Override
+		public String toString() {
+			return "current";
+		}
+	}
+
+	/**
+	 * TfIdf class with the TF-IDF score
+	 */
+	public static class TfIdf implements Scorer {
+		@Override
+		public double score(int frequency, int length, int documentFrequency, Statistics statistics) {
+			double idf = Math.log((double) statistics.documents() / Math.max(1, documentFrequency));
+			return (double) frequency / length * idf;
+		}
+
+		@Override
+		public String toString() {
+			return "tfidf";
+		}
+	}
+
+	/**
+	 * Bm25 class with the Okapi BM25 score
+	 */
+	public static class Bm25 implements Scorer {
+		/**
+		 * k1 to limit how much repeated matches add
+		 */
+		private static final double K1 = 1.2;
+
+		/**
+		 * b to control how much longer locations are penalized
+		 */
+		private static final double B = 0.75;
+
+		@Override
+		public double score(int frequency, int length, int documentFrequency, Statistics statistics) {
+			double idf = Math.log(1 + (statistics.documents() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+			double norm = K1 * (1 - B + B * length / statistics.averageLength());
+			return idf * frequency * (K1 + 1) / (frequency + norm);
+		}
+
+		@Override
+		public String toString() {
+			return "bm25";
+		}
+	}
+
+	/**
+	 * Statistics class with the numbers of the whole index a scorer needs
+	 */
+	public static class Statistics {
+		/**
+		 * documents with the number of locations in the index
+		 */
+		private final int documents;
+
+		/**
+		 * totalWords with the number of words in all locations
+		 */
+		private final long totalWords;
+
+		/**
+		 * Constructor
+		 *
+		 * @param documents  number of locations in the index
+		 * @param totalWords number of words in all locations
+		 */
+		public Statistics(int documents, long totalWords) {
+			this.documents = documents;
+			this.totalWords = totalWords;
+		}
+
+		/**
+		 * @return the number of locations in the index
+		 */
+		public int documents() {
+			return documents;
+		}
+
+		/**
+		 * @return the number of words in all locations
+		 */
+		public long totalWords() {
+			return totalWords;
+		}
+
+		/**
+		 * averageLength method to get the average number of words in a location
+		 *
+		 * @return the average, or 1 if there are no locations
+		 */
+		public double averageLength() {
+			return documents == 0 ? 1 : (double) totalWords / documents;
+		}
+	}
+}
@@ -54,12 +54,18 @@ public class SearchServlet extends HttpServlet {
 	/** Template for each result */
 	private final String resultsHeadTemplate;
 
-	/** Thread safe search to perform the search for the query */
-	private final ThreadSafeQuerySearch search;
+	/** Thread safe search to perform the search for the query, by scorer name */
+	private final Map<String, ThreadSafeQuerySearch> searches;
+
+	/** Cache with the results of recent searches of all scorers */
+	private final QueryCache cache;
 
 	/** Used to fetch the visited count from a cookie. */
 	private static final String VISIT_COUNT = "Count";
 
+	/** The number of results shown for a query. */
+	private static final int PAGE = 50;
+
 	/**
 	 * Initializes this search servlet
 	 * 
@@ -68,8 +74,24 @@ public class SearchServlet extends HttpServlet {
 	 * @throws IOException if unable to read templates
 	 */
 	public SearchServlet(ThreadSafeInvertedIndex inverted, int threads) throws IOException {
+		this(inverted, threads, new QueryCache());
+	}
+
+	/**
+	 * Initializes this search servlet
+	 * 
+	 * @param inverted to get the data from
+	 * @param threads  to use in the query search
+	 * @param cache    to keep the results of recent searches in
+	 * @throws IOException if unable to read templates
+	 */
+	public SearchServlet(ThreadSafeInvertedIndex inverted, int threads, QueryCache cache) throws IOException {
 		super();
-		search = new ThreadSafeQuerySearch(inverted, threads);
+		this.cache = cache;
+		searches = new HashMap<String, ThreadSafeQuerySearch>();
+		for (var entry : Scorer.scorers().entrySet()) {
+			searches.put(entry.getKey(), new ThreadSafeQuerySearch(inverted, threads, entry.getValue(), cache));
+		}
 		// load templates
 		headTemplate = Files.readString(base.resolve("search-head.html"), UTF_8);
 		footTemplate = Files.readString(base.resolve("search-foot.html"), UTF_8);
@@ -149,8 +171,12 @@ public class SearchServlet extends HttpServlet {
 		if (query.isEmpty()) {
 			out.printf("    <p>No queries submitted.</p>%n");
 		} else {
-			search.processQueryLine(query, false);
-			List<SearchResult> results = search.getResults(query);
+			// rank with the chosen scorer, or the current score if none was chosen
+			String scorer = request.getParameter("scorer");
+			ThreadSafeQuerySearch search = searches.getOrDefault(scorer, searches.get(Scorer.CURRENT.toString()));
+			// only the first page is searched for, not every matching location
+			List<SearchResult> results = search.search(query, false, PAGE);
+			log.info("Query cache: {}, {}", cache, StemCache.ENGLISH);
 			// set end time after the search
 			long endTime = System.currentTimeMillis();
 			// calculate the time it took to search, and add it
@@ -0,0 +1,521 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+
+/**
+ * SegmentIndex class to search a read-only segment file written by
+ * {@link InvertedIndexSnapshot#write(Path)}. The file is memory-mapped, so the
+ * words and postings stay in the page cache of the operating system instead of
+ * the heap, and only the pages a query reads are loaded. Only the locations and
+ * their word counts are read into the heap.
+ *
+ * The segment has the same layout as the snapshot: sorted words with the range
+ * of their postings, and for every posting the location id, the number of
+ * positions and the offset of the encoded positions. A segment file can be up to
+ * 2GB.
+ *
+ * Immutable and safe to use from many threads.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class SegmentIndex implements IndexSearchInterface {
+	/** The magic number at the start of every segment file ("SSEG"). */
+	public static final int MAGIC = 0x53534547;
+
+	/** The version of the format, changed whenever the format changes. */
+	public static final int VERSION = 1;
+
+	/**
+	 * locations in sorted order, the location id is the index in this array
+	 */
+	private final String[] locations;
+
+	/**
+	 * wordCount of every location by location id
+	 */
+	private final int[] wordCount;
+
+	/**
+	 * counts with the precomputed word count map
+	 */
+	private final Map<String, Integer> counts;
+
+	/**
+	 * statistics of the whole segment for scorers
+	 */
+	private final Scorer.Statistics statistics;
+
+	/**
+	 * termCount with the number of words
+	 */
+	private final int termCount;
+
+	/**
+	 * termOffsets with the offset of every word in termBytes, and the total at the
+	 * end
+	 */
+	private final IntBuffer termOffsets;
+
+	/**
+	 * termStarts with the index of the first posting of every word, and the total
+	 * number of postings at the end
+	 */
+	private final IntBuffer termStarts;
+
+	/**
+	 * docs with the location id of every posting
+	 */
+	private final IntBuffer docs;
+
+	/**
+	 * frequencies with the number of positions of every posting
+	 */
+	private final IntBuffer frequencies;
+
+	/**
+	 * positionStarts with the offset of the encoded positions of every posting
+	 */
+	private final IntBuffer positionStarts;
+
+	/**
+	 * termBytes with the UTF-8 bytes of all words
+	 */
+	private final ByteBuffer termBytes;
+
+	/**
+	 * positions with the encoded positions of all postings
+	 */
+	private final ByteBuffer positions;
+
+	/**
+	 * Opens a segment file
+	 *
+	 * @param path of the segment file
+	 * @throws IOException when IO error accrue, or if the file is not a valid
+	 *                     segment file
+	 */
+	public SegmentIndex(Path path) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("segment file is too large: " + path);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("not a segment file: " + path);
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported segment file version " + version + ": " + path);
+			}
+			int locationCount = count(buffer);
+			termCount = count(buffer);
+			int postingCount = count(buffer);
+			int termByteCount = count(buffer);
+			int positionByteCount = count(buffer);
+
+			locations = new String[locationCount];
+			wordCount = new int[locationCount];
+			TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+			for (int doc = 0; doc < locationCount; doc++) {
+				byte[] bytes = new byte[count(buffer)];
+				buffer.get(bytes);
+				locations[doc] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			long totalWords = 0;
+			for (int doc = 0; doc < locationCount; doc++) {
+				wordCount[doc] = count(buffer);
+				counts.put(locations[doc], wordCount[doc]);
+				totalWords += wordCount[doc];
+			}
+			this.counts = Collections.unmodifiableMap(counts);
+			this.statistics = new Scorer.Statistics(locationCount, totalWords);
+			buffer.position((buffer.position() + Integer.BYTES - 1) & -Integer.BYTES);
+
+			termOffsets = ints(buffer, termCount + 1);
+			termStarts = ints(buffer, termCount + 1);
+			docs = ints(buffer, postingCount);
+			frequencies = ints(buffer, postingCount);
+			positionStarts = ints(buffer, postingCount + 1);
+			termBytes = bytes(buffer, termByteCount);
+			positions = bytes(buffer, positionByteCount);
+			if (buffer.hasRemaining() || termOffsets.get(termCount) != termByteCount
+					|| termStarts.get(termCount) != postingCount || positionStarts.get(postingCount) != positionByteCount) {
+				throw new IOException("corrupted segment file: " + path);
+			}
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("corrupted segment file: " + path, e);
+		}
+	}
+
+	/**
+	 * count helper method to read a number that can not be negative
+	 *
+	 * @param buffer to read from
+	 * @return the number
+	 * @throws IOException if the number is negative
+	 */
+	private static int count(ByteBuffer buffer) throws IOException {
+		int count = buffer.getInt();
+		if (count < 0) {
+			throw new IOException("corrupted segment file");
+		}
+		return count;
+	}
+
+	/**
+	 * ints helper method to get a view of the next ints of the buffer
+	 *
+	 * @param buffer to read from
+	 * @param length number of ints
+	 * @return the view
+	 */
+	private static IntBuffer ints(ByteBuffer buffer, int length) {
+		IntBuffer view = buffer.slice().limit(length * Integer.BYTES).asIntBuffer();
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return view;
+	}
+
+	/**
+	 * bytes helper method to get a view of the next bytes of the buffer
+	 *
+	 * @param buffer to read from
+	 * @param length number of bytes
+	 * @return the view
+	 */
+	private static ByteBuffer bytes(ByteBuffer buffer, int length) {
+		ByteBuffer view = buffer.slice().limit(length);
+		buffer.position(buffer.position() + length);
+		return view;
+	}
+
+	/**
+	 * term helper method to get a word
+	 *
+	 * @param term index of the word
+	 * @return the word
+	 */
+	private String term(int term) {
+		int start = termOffsets.get(term);
+		byte[] bytes = new byte[termOffsets.get(term + 1) - start];
+		termBytes.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * first helper method to find the first word that is not smaller than a
+	 * string
+	 *
+	 * @param word to look for
+	 * @return index of the word, or of where it would be
+	 */
+	private int first(String word) {
+		int low = 0;
+		int high = termCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (term(middle).compareTo(word) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * end helper method to find the end of the words that start with a prefix
+	 *
+	 * @param prefix to look for
+	 * @param first  index of the first word that is not smaller than the prefix
+	 * @return index after the last completion
+	 */
+	private int end(String prefix, int first) {
+		int low = first;
+		int high = termCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (term(middle).startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * find helper method to find a word
+	 *
+	 * @param word to look for
+	 * @return index of the word, or -1 if it is not in the segment
+	 */
+	private int find(String word) {
+		int term = first(word);
+		return term < termCount && term(term).equals(word) ? term : -1;
+	}
+
+	@Override
+	public List<SearchResult> exactSearch(Set<String> queries) {
+		return search(queries, true, Scorer.CURRENT);
+	}
+
+	@Override
+	public List<SearchResult> partialSearch(Set<String> queries) {
+		return search(queries, false, Scorer.CURRENT);
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		List<SearchResult> results;
+		if (scorer == Scorer.CURRENT) {
+			matchingTerms(queries, exact, term -> searchLogic(term, accumulator));
+			results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc]);
+		} else {
+			matchingTerms(queries, exact, term -> scoreLogic(term, scorer, accumulator));
+			results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc], scorer);
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(PhraseQuery query, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		matchingTerms(query.getWords(), exact, term -> searchLogic(term, accumulator));
+		query.match(word -> {
+			int term = find(word);
+			return term < 0 ? null : new TermPositions(term);
+		}, accumulator);
+		List<SearchResult> results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc]);
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(BooleanQuery query, boolean exact) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		query.match(word -> {
+			List<PostingsReader> readers = new ArrayList<PostingsReader>();
+			matchingTerms(Set.of(word), exact, term -> readers.add(new TermPositions(term)));
+			return readers;
+		}, accumulator);
+		List<SearchResult> results = accumulator.results(doc -> locations[doc], doc -> wordCount[doc]);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * matchingTerms helper method to call an action for the index of every word
+	 * that matches a query
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param action  to call with every word index
+	 */
+	private void matchingTerms(Set<String> queries, boolean exact, IntConsumer action) {
+		for (String query : queries) {
+			if (exact) {
+				int term = find(query);
+				if (term >= 0) {
+					action.accept(term);
+				}
+			} else {
+				int first = first(query);
+				int end = end(query, first);
+				for (int term = first; term < end; term++) {
+					action.accept(term);
+				}
+			}
+		}
+	}
+
+	/**
+	 * TermPositions class to read the postings of a word for {@link PhraseQuery}
+	 * and {@link BooleanQuery}, straight from the mapped file
+	 */
+	private class TermPositions extends PostingsReader {
+		/**
+		 * start with the index of the first posting of the word
+		 */
+		private final int start;
+
+		/**
+		 * size with the number of postings of the word
+		 */
+		private final int size;
+
+		/**
+		 * Constructor
+		 *
+		 * @param term index of the word
+		 */
+		private TermPositions(int term) {
+			this.start = termStarts.get(term);
+			this.size = termStarts.get(term + 1) - start;
+		}
+
+		@Override
+		protected int size() {
+			return size;
+		}
+
+		@Override
+		protected int doc(int index) {
+			return docs.get(start + index);
+		}
+
+		@Override
+		protected int frequency(int index) {
+			return frequencies.get(start + index);
+		}
+
+		@Override
+		protected int[] positions(int index) {
+			int offset = positionStarts.get(start + index);
+			byte[] bytes = new byte[positionStarts.get(start + index + 1) - offset];
+			positions.get(offset, bytes);
+			return PostingList.decode(bytes, 0, frequencies.get(start + index));
+		}
+	}
+
+	/**
+	 * searchLogic helper method that holds the common logic for exact search and
+	 * partial search
+	 *
+	 * @param term        index of the word to add the matches of
+	 * @param accumulator to add the matches to
+	 */
+	private void searchLogic(int term, ScoreAccumulator accumulator) {
+		int end = termStarts.get(term + 1);
+		for (int i = termStarts.get(term); i < end; i++) {
+			accumulator.add(docs.get(i), frequencies.get(i));
+		}
+	}
+
+	/**
+	 * scoreLogic helper method to add the matches of a word with their scores
+	 *
+	 * @param term        index of the word to add the matches of
+	 * @param scorer      to score the word with
+	 * @param accumulator to add the matches to
+	 */
+	private void scoreLogic(int term, Scorer scorer, ScoreAccumulator accumulator) {
+		int start = termStarts.get(term);
+		int end = termStarts.get(term + 1);
+		for (int i = start; i < end; i++) {
+			int doc = docs.get(i);
+			int frequency = frequencies.get(i);
+			accumulator.add(doc, frequency, scorer.score(frequency, wordCount[doc], end - start, statistics));
+		}
+	}
+
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		// the segment has no frequency tree, so look at every completion
+		int first = first(prefix);
+		int end = end(prefix, first);
+		PriorityQueue<int[]> best = new PriorityQueue<int[]>((a, b) -> {
+			int compare = Integer.compare(a[1], b[1]);
+			return compare != 0 ? compare : Integer.compare(b[0], a[0]);
+		});
+		for (int term = first; term < end && limit > 0; term++) {
+			best.add(new int[] { term, termStarts.get(term + 1) - termStarts.get(term) });
+			if (best.size() > limit) {
+				best.poll();
+			}
+		}
+		List<String> completions = new ArrayList<String>(best.size());
+		while (!best.isEmpty()) {
+			completions.add(term(best.poll()[0]));
+		}
+		Collections.reverse(completions);
+		return completions;
+	}
+
+	@Override
+	public Map<String, Integer> getCounts() {
+		return counts;
+	}
+
+	/**
+	 * hasWord method if there is the word in the segment
+	 *
+	 * @param word to check
+	 * @return true if the word was found
+	 */
+	public boolean hasWord(String word) {
+		return find(word) >= 0;
+	}
+
+	/**
+	 * getIndexes method get a set of all indexes of a word and location
+	 *
+	 * @param word     to find the index for
+	 * @param location of the source
+	 * @return the set of indexes the word appear at in this source
+	 */
+	public Set<Integer> getIndexes(String word, String location) {
+		int term = find(word);
+		int doc = Arrays.binarySearch(locations, location);
+		if (term >= 0 && doc >= 0) {
+			for (int i = termStarts.get(term); i < termStarts.get(term + 1); i++) {
+				if (docs.get(i) == doc) {
+					int start = positionStarts.get(i);
+					byte[] bytes = new byte[positionStarts.get(i + 1) - start];
+					positions.get(start, bytes);
+					return Collections.unmodifiableSet(new PostingList(bytes, 0, bytes.length, frequencies.get(i)));
+				}
+			}
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * wordsSize method to get the number of words
+	 *
+	 * @return the number of words in the segment
+	 */
+	public int wordsSize() {
+		return termCount;
+	}
+
+	/**
+	 * sizeCounts method to get the number of locations
+	 *
+	 * @return the number of locations in the segment
+	 */
+	public int sizeCounts() {
+		return locations.length;
+	}
+
+	@Override
+	public String toString() {
+		return "SegmentIndex[words=" + termCount + ", locations=" + locations.length + ", postings=" + docs.limit()
+				+ "]";
+	}
+}
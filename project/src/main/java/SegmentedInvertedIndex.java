@@ -0,0 +1,982 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * @author Noga Gottlieb
+ *
+ *         SegmentedInvertedIndex class for continuous ingestion. New data goes
+ *         into a small in-memory index, which is sealed into an immutable
+ *         segment when it has enough words. Searches read the small index and
+ *         all segments, and only lock the small index, so they do not wait for
+ *         the segments to be merged. A background thread merges every few
+ *         segments of about the same size into one larger segment, and the
+ *         smallest segments when there are more than {@link #MAX_SEGMENTS}, so
+ *         a search reads only a few segments. Writers wait for the background
+ *         thread if it falls far behind.
+ *
+ *         Every location is in only one place, the small index or one segment.
+ *         Before data is added to a location of a sealed segment, its data is
+ *         copied into the small index and the location is marked as removed in
+ *         the segment, so a position that is added again is found as a
+ *         duplicate like in one index. Removing a location from a sealed segment
+ *         only marks it as removed in that segment, and its data is dropped when
+ *         the segment is merged. A search for the best results scores the small
+ *         index and every segment on their own, with the bounds of their words.
+ */
+public class SegmentedInvertedIndex extends ThreadSafeInvertedIndex {
+	/** The default number of words in the small index before it is sealed. */
+	public static final int DEFAULT = 1 << 16;
+
+	/** The number of segments of about the same size merged together. */
+	private static final int MERGE_FACTOR = 4;
+
+	/** The number of segments above which the smallest are merged. */
+	private static final int MAX_SEGMENTS = 8;
+
+	/**
+	 * sealSize with the number of words in the small index before it is sealed
+	 */
+	private final int sealSize;
+
+	/**
+	 * memtable with the small index that new data is added to
+	 */
+	private InvertedIndex memtable;
+
+	/**
+	 * memtableSize with the number of words added to the small index
+	 */
+	private long memtableSize;
+
+	/**
+	 * segments with the sealed, immutable segments. The list is never changed, it
+	 * is replaced when a segment is sealed or merged.
+	 */
+	private volatile List<Segment> segments;
+
+	/**
+	 * lock used to protect the small index and the replacing of the segments
+	 */
+	private final MultiReaderLock lock;
+
+	/**
+	 * Word count TreeMap with the files and the word count in them, for all
+	 * segments
+	 */
+	private final TreeMap<String, Integer> counts;
+
+	/**
+	 * totalWords with the sum of the word counts of all locations
+	 */
+	private long totalWords;
+
+	/**
+	 * The lock used to protect concurrent access to the word counts
+	 */
+	private final MultiReaderLock countsLock;
+
+	/**
+	 * merger with the background thread that merges segments
+	 */
+	private final WorkQueue merger;
+
+	/**
+	 * closed if the background thread was stopped, guarded by the lock
+	 */
+	private boolean closed;
+
+	/**
+	 * Constructor with the default seal size
+	 */
+	public SegmentedInvertedIndex() {
+		this(DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param sealSize the number of words in the small index before it is sealed
+	 */
+	public SegmentedInvertedIndex(int sealSize) {
+		this.sealSize = Math.max(1, sealSize);
+		memtable = new InvertedIndex();
+		memtableSize = 0;
+		segments = Collections.emptyList();
+		lock = new MultiReaderLock();
+		counts = new TreeMap<String, Integer>();
+		totalWords = 0;
+		countsLock = new MultiReaderLock();
+		merger = new WorkQueue(1);
+		closed = false;
+	}
+
+	@Override
+	public boolean addIndex(String word, String location, Integer index) {
+		// counts are updated before the postings, so a search never finds a
+		// location with fewer words than matches
+		addCount(location, 1);
+		boolean modified;
+		lock.writeLock().lock();
+		try {
+			claim(location);
+			modified = memtable.addIndex(word, location, index);
+			if (modified) {
+				memtableSize++;
+				sealIfFull();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (modified) {
+			modified();
+		} else {
+			addCount(location, -1);
+		}
+		waitForMerges();
+		return modified;
+	}
+
+	@Override
+	public void addAll(InvertedIndex inverted) {
+		countsLock.writeLock().lock();
+		try {
+			for (var entry : inverted.getCounts().entrySet()) {
+				counts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+				totalWords += entry.getValue();
+			}
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+
+		long size = inverted.totalCount();
+		lock.writeLock().lock();
+		try {
+			for (String location : inverted.getAllLocations()) {
+				claim(location);
+			}
+			memtable.addAll(inverted);
+			memtableSize += size;
+			sealIfFull();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		modified();
+		waitForMerges();
+	}
+
+	@Override
+	public void addAll(InvertedIndex inverted, Predicate<String> words) {
+		InvertedIndex filtered = new InvertedIndex();
+		filtered.addAll(inverted, words);
+		addAll(filtered);
+	}
+
+	@Override
+	public boolean removeLocation(String location) {
+		boolean removed;
+		lock.writeLock().lock();
+		try {
+			removed = memtable.removeLocation(location);
+			removed |= markRemoved(location);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		// counts are removed after the postings, so a search never finds a
+		// location without a count
+		countsLock.writeLock().lock();
+		try {
+			Integer count = counts.remove(location);
+			if (count != null) {
+				totalWords -= count;
+				removed = true;
+			}
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+		if (removed) {
+			modified();
+		}
+		return removed;
+	}
+
+	@Override
+	public void replaceLocation(String location, InvertedIndex inverted) {
+		InvertedIndex single = new InvertedIndex();
+		single.replaceLocation(location, inverted);
+		int count = single.sizeCountLocation(location);
+		if (count > 0) {
+			countsLock.writeLock().lock();
+			try {
+				Integer old = counts.put(location, count);
+				totalWords += count - (old == null ? 0 : old);
+			} finally {
+				countsLock.writeLock().unlock();
+			}
+		}
+		lock.writeLock().lock();
+		try {
+			memtable.replaceLocation(location, single);
+			markRemoved(location);
+			memtableSize += count;
+			sealIfFull();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (count == 0) {
+			countsLock.writeLock().lock();
+			try {
+				Integer old = counts.remove(location);
+				totalWords -= old == null ? 0 : old;
+			} finally {
+				countsLock.writeLock().unlock();
+			}
+		}
+		modified();
+		waitForMerges();
+	}
+
+	/**
+	 * claim helper method to move a location out of the sealed segments into the
+	 * small index before data is added to it. The positions are copied, since the
+	 * segments are read without the lock. The words moved are not counted toward
+	 * sealing, so a location added word by word is not moved back after every
+	 * seal. Must hold the write lock.
+	 *
+	 * @param location to move
+	 */
+	private void claim(String location) {
+		if (memtable.getAllLocations().contains(location)) {
+			return;
+		}
+		boolean claimed = false;
+		for (Segment segment : segments) {
+			if (!segment.removed.contains(location) && segment.index.getAllLocations().contains(location)) {
+				InvertedIndex single = new InvertedIndex();
+				single.replaceLocation(location, segment.index, true);
+				memtable.addAll(single);
+				claimed = true;
+			}
+		}
+		if (claimed) {
+			markRemoved(location);
+		}
+	}
+
+	/**
+	 * markRemoved helper method to mark a location as removed in every segment
+	 * that has it. Must hold the write lock.
+	 *
+	 * @param location to remove
+	 * @return true if a segment had the location
+	 */
+	private boolean markRemoved(String location) {
+		boolean marked = false;
+		ArrayList<Segment> marking = new ArrayList<Segment>(segments.size());
+		for (Segment segment : segments) {
+			if (!segment.removed.contains(location) && segment.index.getAllLocations().contains(location)) {
+				TreeSet<String> removed = new TreeSet<String>(segment.removed);
+				removed.add(location);
+				marking.add(new Segment(segment.index, Collections.unmodifiableSet(removed)));
+				marked = true;
+			} else {
+				marking.add(segment);
+			}
+		}
+		if (marked) {
+			segments = Collections.unmodifiableList(marking);
+		}
+		return marked;
+	}
+
+	@Override
+	public void compact() {
+		lock.writeLock().lock();
+		try {
+			memtable.compact();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		modified();
+		for (Segment segment : segments) {
+			if (!segment.removed.isEmpty()) {
+				replace(List.of(segment), new Segment(segment.live(), Collections.emptySet()));
+			}
+		}
+	}
+
+	/**
+	 * addCount helper method to change the word count of a location
+	 *
+	 * @param location to change
+	 * @param delta    to add to the count
+	 */
+	private void addCount(String location, int delta) {
+		countsLock.writeLock().lock();
+		try {
+			counts.merge(location, delta, Integer::sum);
+			totalWords += delta;
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * sealIfFull helper method to seal the small index into a segment when it has
+	 * enough words, and ask the background thread to merge. Must hold the write
+	 * lock.
+	 */
+	private void sealIfFull() {
+		if (memtableSize >= sealSize) {
+			seal();
+		}
+	}
+
+	/**
+	 * seal helper method to make the small index a segment and start a new one.
+	 * Must hold the write lock.
+	 */
+	private void seal() {
+		if (memtableSize == 0) {
+			return;
+		}
+		InvertedIndex sealed = memtable;
+		ArrayList<Segment> sealedSegments = new ArrayList<Segment>(segments);
+		sealedSegments.add(new Segment(sealed, Collections.emptySet()));
+		segments = Collections.unmodifiableList(sealedSegments);
+		memtable = new InvertedIndex();
+		memtableSize = 0;
+		if (closed) {
+			return;
+		}
+		merger.execute(() -> {
+			// build the prefix dictionary before searches need it
+			sealed.complete("", 0);
+			merge();
+		});
+	}
+
+	/**
+	 * merge helper method to merge segments of about the same size until there are
+	 * fewer than {@link #MERGE_FACTOR} of every size. Only runs on the background
+	 * thread, so segments are not merged by two threads at once.
+	 */
+	private void merge() {
+		List<Segment> chosen;
+		while ((chosen = choose(segments)) != null) {
+			// the segments do not change, so they are merged without any lock
+			InvertedIndex merged = new InvertedIndex();
+			for (Segment segment : chosen) {
+				merged.addAll(segment.live());
+			}
+			merged.complete("", 0);
+			replace(chosen, new Segment(merged, Collections.emptySet()));
+		}
+	}
+
+	/**
+	 * replace helper method to replace some segments with one segment that has
+	 * their data. Does nothing if one of them was replaced in the meantime,
+	 * because a location was removed from it.
+	 *
+	 * @param old         the segments to replace
+	 * @param replacement the segment to put instead
+	 */
+	private void replace(List<Segment> old, Segment replacement) {
+		lock.writeLock().lock();
+		try {
+			if (!segments.containsAll(old)) {
+				return;
+			}
+			ArrayList<Segment> replaced = new ArrayList<Segment>();
+			for (Segment segment : segments) {
+				if (!old.contains(segment)) {
+					replaced.add(segment);
+				}
+			}
+			replaced.add(replacement);
+			segments = Collections.unmodifiableList(replaced);
+			// dropping the removed locations changes the document frequencies
+			modified();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * choose helper method to find segments to merge. Segments are grouped by size,
+	 * where every group is {@link #MERGE_FACTOR} times larger than the one before.
+	 *
+	 * @param current the current segments
+	 * @return the oldest {@link #MERGE_FACTOR} segments of the smallest full group,
+	 *         else the smallest {@link #MERGE_FACTOR} segments if there are more
+	 *         than {@link #MAX_SEGMENTS}, or null if there is nothing to merge
+	 */
+	private List<Segment> choose(List<Segment> current) {
+		TreeMap<Integer, List<Segment>> tiers = new TreeMap<Integer, List<Segment>>();
+		for (Segment segment : current) {
+			int tier = 0;
+			for (long limit = (long) sealSize * MERGE_FACTOR; segment.index.totalCount() >= limit
+					&& limit < Long.MAX_VALUE / MERGE_FACTOR; limit *= MERGE_FACTOR) {
+				tier++;
+			}
+			tiers.computeIfAbsent(tier, key -> new ArrayList<Segment>()).add(segment);
+		}
+		for (List<Segment> tier : tiers.values()) {
+			if (tier.size() >= MERGE_FACTOR) {
+				return tier.subList(0, MERGE_FACTOR);
+			}
+		}
+		if (current.size() > MAX_SEGMENTS) {
+			// too many segments of different sizes, so the smallest are merged
+			ArrayList<Segment> smallest = new ArrayList<Segment>(current);
+			smallest.sort(Comparator.comparingLong(segment -> segment.index.totalCount()));
+			return smallest.subList(0, MERGE_FACTOR);
+		}
+		return null;
+	}
+
+	/**
+	 * waitForMerges helper method to make a writer wait for the background thread
+	 * if it fell far behind, so the number of segments a search reads stays
+	 * bounded. Must not hold the lock, the merges need it.
+	 */
+	private void waitForMerges() {
+		if (segments.size() > 2 * MAX_SEGMENTS) {
+			merger.finish();
+		}
+	}
+
+	/**
+	 * segmentCount method to get the number of sealed segments
+	 *
+	 * @return the number of segments
+	 */
+	public int segmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * flush method to seal the small index, even if it is not full
+	 */
+	public void flush() {
+		lock.writeLock().lock();
+		try {
+			seal();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * finish method to wait until all pending merges are done
+	 */
+	public void finish() {
+		merger.finish();
+	}
+
+	/**
+	 * close method to wait for the pending merges and stop the background thread.
+	 * Data can still be added and searched after closing, but is no longer merged.
+	 */
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		merger.join();
+	}
+
+	/**
+	 * view helper method to call a method on one index with all the data. The
+	 * merged index shares the positions of the small index, so it is only used
+	 * while the read lock is held. Copies everything, so it is only used to write
+	 * or freeze the whole index.
+	 *
+	 * @param <T>    the type of the result
+	 * @param method to call
+	 * @return the result of the method
+	 */
+	private <T> T view(Function<InvertedIndex, T> method) {
+		lock.readLock().lock();
+		try {
+			return method.apply(mergeAll());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * mergeAll helper method to put the small index and all segments together in
+	 * one index. Must hold the read lock.
+	 *
+	 * @return an index with all the data
+	 */
+	private InvertedIndex mergeAll() {
+		InvertedIndex merged = new InvertedIndex();
+		for (Segment segment : segments) {
+			merged.addAll(segment.live());
+		}
+		merged.addAll(memtable);
+		return merged;
+	}
+
+	/**
+	 * gather helper method to put the postings of the words that match some
+	 * queries from the small index and every segment into one index, without the
+	 * locations removed from a segment. The small index is copied while the read
+	 * lock is held, and the segments are read without it.
+	 *
+	 * @param queries to gather the matching words of
+	 * @param exact   if true, gather the words exactly, if false, gather all words
+	 *                starting with the queries
+	 * @return an index with only the matching words, and no word counts
+	 */
+	private InvertedIndex gather(Set<String> queries, boolean exact) {
+		InvertedIndex gathered = new InvertedIndex();
+		List<Segment> current;
+		// the segments are read with the small index, so every word is found once
+		// even if the small index is sealed at the same time
+		lock.readLock().lock();
+		try {
+			gathered.addWords(memtable, queries, exact, true);
+			current = segments;
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Segment segment : current) {
+			if (segment.removed.isEmpty()) {
+				gathered.addWords(segment.index, queries, exact);
+			} else {
+				InvertedIndex live = new InvertedIndex();
+				live.addWords(segment.index, queries, exact);
+				for (String location : segment.removed) {
+					live.removeLocation(location);
+				}
+				gathered.addAll(live);
+			}
+		}
+		return gathered;
+	}
+
+	@Override
+	public Set<String> getWords() {
+		TreeSet<String> words = new TreeSet<String>();
+		collectWords(words);
+		return Collections.unmodifiableSet(words);
+	}
+
+	/**
+	 * collectWords helper method to add the words of the small index and every
+	 * segment, without the words that only have removed locations
+	 *
+	 * @param words to add the words to
+	 */
+	private void collectWords(Set<String> words) {
+		List<Segment> current;
+		lock.readLock().lock();
+		try {
+			words.addAll(memtable.getWords());
+			current = segments;
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Segment segment : current) {
+			if (segment.removed.isEmpty()) {
+				words.addAll(segment.index.getWords());
+			} else {
+				for (String word : segment.index.getWords()) {
+					if (!segment.removed.containsAll(segment.index.getLocations(word))) {
+						words.add(word);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public Set<String> getLocations(String word) {
+		return gather(Set.of(word), true).getLocations(word);
+	}
+
+	@Override
+	public Set<Integer> getIndexes(String words, String location) {
+		return gather(Set.of(words), true).getIndexes(words, location);
+	}
+
+	@Override
+	public Set<String> getAllLocations() {
+		countsLock.readLock().lock();
+		try {
+			return Collections.unmodifiableSet(new TreeSet<String>(counts.keySet()));
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<String, Integer> getCounts() {
+		countsLock.readLock().lock();
+		try {
+			return Collections.unmodifiableMap(new TreeMap<String, Integer>(counts));
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean hasLocation(String word, String location) {
+		countsLock.readLock().lock();
+		try {
+			return counts.containsKey(location);
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		lock.readLock().lock();
+		try {
+			if (memtable.hasWord(word)) {
+				return true;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Segment segment : segments) {
+			if (segment.removed.isEmpty() ? segment.index.hasWord(word)
+					: !segment.removed.containsAll(segment.index.getLocations(word))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean hasIndex(String word, String location, int index) {
+		return getIndexes(word, location).contains(index);
+	}
+
+	@Override
+	public int indexesSize(String word, String location) {
+		return getIndexes(word, location).size();
+	}
+
+	@Override
+	public int wordsSize() {
+		HashSet<String> words = new HashSet<String>();
+		collectWords(words);
+		return words.size();
+	}
+
+	@Override
+	public int locationSize(String word) {
+		return gather(Set.of(word), true).locationSize(word);
+	}
+
+	@Override
+	public int sizeCounts() {
+		countsLock.readLock().lock();
+		try {
+			return counts.size();
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long totalCount() {
+		countsLock.readLock().lock();
+		try {
+			return totalWords;
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int sizeCountLocation(String location) {
+		countsLock.readLock().lock();
+		try {
+			return counts.getOrDefault(location, 0);
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return view(InvertedIndex::toString);
+	}
+
+	@Override
+	public String toStringCounts() {
+		countsLock.readLock().lock();
+		try {
+			return counts.toString();
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void indexJson(Path path) throws IOException {
+		lock.readLock().lock();
+		try {
+			mergeAll().indexJson(path);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void save(Path path) throws IOException {
+		lock.readLock().lock();
+		try {
+			mergeAll().save(path);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		// a word can be in many segments, so its locations are counted together
+		return gather(Set.of(prefix), false).complete(prefix, limit);
+	}
+
+	@Override
+	public InvertedIndexSnapshot freeze() {
+		return view(InvertedIndex::freeze);
+	}
+
+	@Override
+	public List<SearchResult> exactSearch(Set<String> queries) {
+		return searchSegments(queries, true);
+	}
+
+	@Override
+	public List<SearchResult> partialSearch(Set<String> queries) {
+		return searchSegments(queries, false);
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, int k) {
+		// every location is in one place with all its words, so the best results of
+		// the small index and every segment are scored with their own counts, and
+		// the best of them are the best of the whole index
+		List<SearchResult> results = new ArrayList<SearchResult>();
+		List<Segment> current;
+		lock.readLock().lock();
+		try {
+			results.addAll(memtable.search(queries, exact, k));
+			current = segments;
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Segment segment : current) {
+			results.addAll(segment.index.search(queries, exact, k, segment.removed));
+		}
+		Collections.sort(results);
+		return TopKSearch.first(results, k);
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer) {
+		if (scorer == Scorer.CURRENT) {
+			return search(queries, exact);
+		}
+		// a word can be in many segments, so its postings are gathered into one
+		// index to count its locations once
+		InvertedIndex gathered = gather(queries, exact);
+		List<SearchResult> results = new ArrayList<SearchResult>();
+		countsLock.readLock().lock();
+		try {
+			Scorer.Statistics statistics = new Scorer.Statistics(counts.size(), totalWords);
+			for (SearchResult found : gathered.findMatches(queries, exact, scorer, statistics,
+					location -> counts.getOrDefault(location, 0))) {
+				// skip a location that was removed while searching
+				Integer count = counts.get(found.getLocation());
+				if (count != null) {
+					SearchResult result = new SearchResult(found.getLocation());
+					result.set(found.getCount(), scorer.total(found.getScore(), found.getCount(), count));
+					results.add(result);
+				}
+			}
+		} finally {
+			countsLock.readLock().unlock();
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(PhraseQuery query, boolean exact) {
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		collectSegments(query.getWords(), exact, matches);
+
+		// the words of a phrase can be in different segments, so their postings are
+		// gathered into one index to match the positions
+		HashSet<String> phrases = new HashSet<String>();
+		for (PhraseQuery.Clause clause : query.getClauses()) {
+			phrases.addAll(clause.getWords());
+		}
+		for (SearchResult result : gather(phrases, true).findMatches(query.withoutWords(), true)) {
+			matches.merge(result.getLocation(), result.getCount(), Integer::sum);
+		}
+		return results(matches);
+	}
+
+	@Override
+	public List<SearchResult> search(BooleanQuery query, boolean exact) {
+		// a location can have its words in different segments, so the postings of
+		// the words are gathered into one index to intersect them
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		for (SearchResult result : gather(query.getWords(), exact).findMatches(query, exact)) {
+			matches.put(result.getLocation(), result.getCount());
+		}
+		return results(matches);
+	}
+
+	@Override
+	public Scorer.Statistics statistics() {
+		countsLock.readLock().lock();
+		try {
+			return new Scorer.Statistics(counts.size(), totalWords);
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * searchSegments helper method to search the small index and every segment,
+	 * and combine the matches into sorted search results
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @return sorted list of search result objects with all the results
+	 */
+	private List<SearchResult> searchSegments(Set<String> queries, boolean exact) {
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		collectSegments(queries, exact, matches);
+		return results(matches);
+	}
+
+	/**
+	 * collectSegments helper method to search the small index and every segment,
+	 * and add up the matches by location
+	 *
+	 * @param queries to search for
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param matches to add the number of matches of every location to
+	 */
+	private void collectSegments(Set<String> queries, boolean exact, Map<String, Integer> matches) {
+		List<Segment> current;
+		// the segments are read with the small index, so a search sees every word
+		// once even if the small index is sealed at the same time
+		lock.readLock().lock();
+		try {
+			for (SearchResult result : memtable.findMatches(queries, exact)) {
+				matches.merge(result.getLocation(), result.getCount(), Integer::sum);
+			}
+			current = segments;
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Segment segment : current) {
+			for (SearchResult result : segment.index.findMatches(queries, exact)) {
+				if (!segment.removed.contains(result.getLocation())) {
+					matches.merge(result.getLocation(), result.getCount(), Integer::sum);
+				}
+			}
+		}
+	}
+
+	/**
+	 * results helper method to create sorted search results from the matches of
+	 * every location
+	 *
+	 * @param matches the number of matches by location
+	 * @return sorted list of search result objects
+	 */
+	private List<SearchResult> results(Map<String, Integer> matches) {
+		List<SearchResult> results = new ArrayList<SearchResult>(matches.size());
+		countsLock.readLock().lock();
+		try {
+			for (var entry : matches.entrySet()) {
+				// skip a location that was removed while searching
+				Integer count = counts.get(entry.getKey());
+				if (count != null) {
+					SearchResult result = new SearchResult(entry.getKey());
+					result.update(entry.getValue(), count);
+					results.add(result);
+				}
+			}
+		} finally {
+			countsLock.readLock().unlock();
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Segment class with a sealed index and the locations removed from it since it
+	 * was sealed. Never changed, removing a location replaces the segment.
+	 */
+	private static class Segment {
+		/**
+		 * index with the data of the segment, never changed
+		 */
+		private final InvertedIndex index;
+
+		/**
+		 * removed with the locations removed from the segment
+		 */
+		private final Set<String> removed;
+
+		/**
+		 * Constructor
+		 *
+		 * @param index   with the data of the segment
+		 * @param removed the locations removed from the segment
+		 */
+		private Segment(InvertedIndex index, Set<String> removed) {
+			this.index = index;
+			this.removed = removed;
+		}
+
+		/**
+		 * live method to get the data of the segment without the removed locations
+		 *
+		 * @return the index if nothing was removed, or a copy without the removed
+		 *         locations
+		 */
+		private InvertedIndex live() {
+			if (removed.isEmpty()) {
+				return index;
+			}
+			InvertedIndex live = new InvertedIndex();
+			live.addAll(index);
+			for (String location : removed) {
+				live.removeLocation(location);
+			}
+			return live;
+		}
+	}
+}
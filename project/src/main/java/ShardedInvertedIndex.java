@@ -0,0 +1,864 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * @author Noga Gottlieb
+ *
+ *         ShardedInvertedIndex class that splits the words of the index by hash
+ *         into several shards, each with its own lock. Merging a local index
+ *         only locks one shard at a time, so threads merging at the same time
+ *         work on different shards in parallel, and searches only wait for the
+ *         shard they are reading. Searches go to every shard that may have a
+ *         query word, at the same time when there are several, and combine the
+ *         matches of all of them.
+ *
+ *         Every location has the same id in all shards, so a search for the
+ *         best results reads the words of all shards together in location
+ *         order. Ids are only given or changed under the write lock of the
+ *         counts and in every shard at once: a new location is added to all
+ *         shards before its words, and removing or compacting changes all
+ *         shards together.
+ */
+public class ShardedInvertedIndex extends ThreadSafeInvertedIndex {
+	/** The default number of shards to use when not specified. */
+	public static final int DEFAULT = 8;
+
+	/**
+	 * shards with the words of the index split by hash
+	 */
+	private final InvertedIndex[] shards;
+
+	/**
+	 * locks used to protect concurrent access to every shard
+	 */
+	private final MultiReaderLock[] locks;
+
+	/**
+	 * Word count TreeMap with the files and the word count in them, for all shards
+	 */
+	private final TreeMap<String, Integer> counts;
+
+	/**
+	 * totalWords with the sum of the word counts of all locations
+	 */
+	private long totalWords;
+
+	/**
+	 * The lock used to protect concurrent access to the word counts
+	 */
+	private final MultiReaderLock countsLock;
+
+	/**
+	 * next with the shard the next merge starts at, so concurrent merges start at
+	 * different shards instead of waiting for each other on the first one
+	 */
+	private final AtomicInteger next;
+
+	/**
+	 * bounds with the word counts and the bounds of the words of every shard for
+	 * the searches for the best results, built when first needed and dropped
+	 * whenever the index changes
+	 */
+	private volatile Bounds bounds;
+
+	/**
+	 * Constructor with the default number of shards
+	 */
+	public ShardedInvertedIndex() {
+		this(DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param shards the number of shards to use
+	 */
+	public ShardedInvertedIndex(int shards) {
+		this.shards = new InvertedIndex[Math.max(1, shards)];
+		this.locks = new MultiReaderLock[this.shards.length];
+		for (int i = 0; i < this.shards.length; i++) {
+			this.shards[i] = new InvertedIndex();
+			this.locks[i] = new MultiReaderLock();
+		}
+		counts = new TreeMap<String, Integer>();
+		totalWords = 0;
+		countsLock = new MultiReaderLock();
+		next = new AtomicInteger();
+	}
+
+	/**
+	 * shard helper method to find the shard of a word
+	 *
+	 * @param word to find the shard of
+	 * @return index of the shard
+	 */
+	private int shard(String word) {
+		return Math.floorMod(word.hashCode(), shards.length);
+	}
+
+	@Override
+	public boolean addIndex(String word, String location, Integer index) {
+		// counts are updated before the postings, so a search never finds a
+		// location with fewer words than matches
+		countsLock.writeLock().lock();
+		try {
+			if (!counts.containsKey(location)) {
+				register(List.of(location));
+			}
+			counts.merge(location, 1, Integer::sum);
+			totalWords++;
+			bounds = null;
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+		int shard = shard(word);
+		boolean modified;
+		locks[shard].writeLock().lock();
+		try {
+			// a location removed in the meantime is not added back to only one shard
+			modified = shards[shard].locationId(location) >= 0 && shards[shard].addIndex(word, location, index);
+			bounds = null;
+		} finally {
+			locks[shard].writeLock().unlock();
+		}
+		if (modified) {
+			modified();
+		} else {
+			removeCount(location);
+		}
+		return modified;
+	}
+
+	@Override
+	public void addAll(InvertedIndex inverted) {
+		// the words are split once before locking, and every shard only gets its
+		// own part
+		int[][] words = inverted.split(shards.length, this::shard);
+		countsLock.writeLock().lock();
+		try {
+			List<String> added = new ArrayList<String>();
+			for (var entry : inverted.getCounts().entrySet()) {
+				if (!counts.containsKey(entry.getKey())) {
+					added.add(entry.getKey());
+				}
+				counts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+				totalWords += entry.getValue();
+			}
+			register(added);
+			bounds = null;
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+
+		int start = next.getAndIncrement();
+		for (int i = 0; i < shards.length; i++) {
+			int shard = Math.floorMod(start + i, shards.length);
+			if (words[shard].length > 0) {
+				locks[shard].writeLock().lock();
+				try {
+					// a location removed in the meantime is skipped in every shard after it
+					shards[shard].addAll(inverted, words[shard], false);
+					bounds = null;
+				} finally {
+					locks[shard].writeLock().unlock();
+				}
+			}
+		}
+		modified();
+	}
+
+	@Override
+	public void addAll(InvertedIndex inverted, Predicate<String> words) {
+		InvertedIndex filtered = new InvertedIndex();
+		filtered.addAll(inverted, words);
+		addAll(filtered);
+	}
+
+	@Override
+	public boolean removeLocation(String location) {
+		boolean removed = false;
+		// the location is removed from the counts and all shards at once, so the
+		// shards give the same ids from then on
+		countsLock.writeLock().lock();
+		try {
+			for (int shard = 0; shard < shards.length; shard++) {
+				locks[shard].writeLock().lock();
+				try {
+					removed |= shards[shard].removeLocation(location);
+					bounds = null;
+				} finally {
+					locks[shard].writeLock().unlock();
+				}
+			}
+			Integer count = counts.remove(location);
+			if (count != null) {
+				totalWords -= count;
+				removed = true;
+			}
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+		if (removed) {
+			modified();
+		}
+		return removed;
+	}
+
+	@Override
+	public void replaceLocation(String location, InvertedIndex inverted) {
+		InvertedIndex single = new InvertedIndex();
+		single.replaceLocation(location, inverted);
+		int count = single.sizeCountLocation(location);
+		int[][] words = single.split(shards.length, this::shard);
+		// the location is removed and added again to the counts and all shards at
+		// once, so it gets the same new id in every shard
+		countsLock.writeLock().lock();
+		try {
+			Integer old = count > 0 ? counts.put(location, count) : counts.remove(location);
+			totalWords += count - (old == null ? 0 : old);
+			for (int shard = 0; shard < shards.length; shard++) {
+				locks[shard].writeLock().lock();
+				try {
+					shards[shard].removeLocation(location);
+					if (count > 0) {
+						shards[shard].addLocation(location);
+						shards[shard].addAll(single, words[shard], false);
+					}
+					bounds = null;
+				} finally {
+					locks[shard].writeLock().unlock();
+				}
+			}
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+		modified();
+	}
+
+	@Override
+	public void compact() {
+		// compacting gives new ids in the same order, so all shards are compacted at
+		// once
+		countsLock.writeLock().lock();
+		try {
+			for (int shard = 0; shard < shards.length; shard++) {
+				locks[shard].writeLock().lock();
+				try {
+					shards[shard].compact();
+					bounds = null;
+				} finally {
+					locks[shard].writeLock().unlock();
+				}
+			}
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+		modified();
+	}
+
+	/**
+	 * register helper method to add new locations to every shard in the same
+	 * order, so a location has the same id in all shards. Must be called with the
+	 * write lock of the counts, the only lock ids are given under.
+	 *
+	 * @param added the new locations
+	 */
+	private void register(List<String> added) {
+		if (added.isEmpty()) {
+			return;
+		}
+		for (int shard = 0; shard < shards.length; shard++) {
+			locks[shard].writeLock().lock();
+			try {
+				for (String location : added) {
+					shards[shard].addLocation(location);
+				}
+				bounds = null;
+			} finally {
+				locks[shard].writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * removeCount helper method to take back a word counted for a location that
+	 * was not added, unless the location was removed since
+	 *
+	 * @param location to change
+	 */
+	private void removeCount(String location) {
+		countsLock.writeLock().lock();
+		try {
+			if (counts.computeIfPresent(location, (key, count) -> count - 1) != null) {
+				totalWords--;
+			}
+			bounds = null;
+		} finally {
+			countsLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<String> getWords() {
+		TreeSet<String> words = new TreeSet<String>();
+		for (int shard = 0; shard < shards.length; shard++) {
+			locks[shard].readLock().lock();
+			try {
+				words.addAll(shards[shard].getWords());
+			} finally {
+				locks[shard].readLock().unlock();
+			}
+		}
+		return Collections.unmodifiableSet(words);
+	}
+
+	@Override
+	public Set<String> getLocations(String word) {
+		int shard = shard(word);
+		locks[shard].readLock().lock();
+		try {
+			return shards[shard].getLocations(word);
+		} finally {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<Integer> getIndexes(String words, String location) {
+		int shard = shard(words);
+		locks[shard].readLock().lock();
+		try {
+			return shards[shard].getIndexes(words, location);
+		} finally {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<String> getAllLocations() {
+		countsLock.readLock().lock();
+		try {
+			return Collections.unmodifiableSet(new TreeSet<String>(counts.keySet()));
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<String, Integer> getCounts() {
+		countsLock.readLock().lock();
+		try {
+			return Collections.unmodifiableMap(new TreeMap<String, Integer>(counts));
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean hasLocation(String word, String location) {
+		countsLock.readLock().lock();
+		try {
+			return counts.containsKey(location);
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		int shard = shard(word);
+		locks[shard].readLock().lock();
+		try {
+			return shards[shard].hasWord(word);
+		} finally {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean hasIndex(String word, String location, int index) {
+		int shard = shard(word);
+		locks[shard].readLock().lock();
+		try {
+			return shards[shard].hasIndex(word, location, index);
+		} finally {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public int indexesSize(String word, String location) {
+		int shard = shard(word);
+		locks[shard].readLock().lock();
+		try {
+			return shards[shard].indexesSize(word, location);
+		} finally {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public int wordsSize() {
+		int size = 0;
+		for (int shard = 0; shard < shards.length; shard++) {
+			locks[shard].readLock().lock();
+			try {
+				size += shards[shard].wordsSize();
+			} finally {
+				locks[shard].readLock().unlock();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public int locationSize(String word) {
+		int shard = shard(word);
+		locks[shard].readLock().lock();
+		try {
+			return shards[shard].locationSize(word);
+		} finally {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public int sizeCounts() {
+		countsLock.readLock().lock();
+		try {
+			return counts.size();
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long totalCount() {
+		countsLock.readLock().lock();
+		try {
+			return totalWords;
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int sizeCountLocation(String location) {
+		countsLock.readLock().lock();
+		try {
+			return counts.getOrDefault(location, 0);
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lockAll();
+		try {
+			return merge().toString();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	@Override
+	public String toStringCounts() {
+		countsLock.readLock().lock();
+		try {
+			return counts.toString();
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void indexJson(Path path) throws IOException {
+		lockAll();
+		try {
+			merge().indexJson(path);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	@Override
+	public void save(Path path) throws IOException {
+		lockAll();
+		try {
+			merge().save(path);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		// every word is in one shard, so the best of every shard are the candidates
+		List<String> candidates = new ArrayList<String>();
+		HashMap<String, Integer> frequencies = new HashMap<String, Integer>();
+		for (int shard = 0; shard < shards.length; shard++) {
+			locks[shard].readLock().lock();
+			try {
+				for (String word : shards[shard].complete(prefix, limit)) {
+					candidates.add(word);
+					frequencies.put(word, shards[shard].locationSize(word));
+				}
+			} finally {
+				locks[shard].readLock().unlock();
+			}
+		}
+		candidates.sort((a, b) -> {
+			int compare = Integer.compare(frequencies.get(b), frequencies.get(a));
+			return compare != 0 ? compare : a.compareTo(b);
+		});
+		return candidates.subList(0, Math.min(limit, candidates.size()));
+	}
+
+	@Override
+	public InvertedIndexSnapshot freeze() {
+		lockAll();
+		try {
+			return merge().freeze();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * merge helper method to put all shards together in one index. The merged
+	 * index shares the positions of the shards, so all shards must stay read
+	 * locked while it is used.
+	 *
+	 * @return an index with the data of all shards
+	 */
+	private InvertedIndex merge() {
+		InvertedIndex merged = new InvertedIndex();
+		for (InvertedIndex shard : shards) {
+			merged.addAll(shard);
+		}
+		return merged;
+	}
+
+	/**
+	 * lockAll helper method to read lock all shards, always in the same order
+	 */
+	private void lockAll() {
+		for (MultiReaderLock lock : locks) {
+			lock.readLock().lock();
+		}
+	}
+
+	/**
+	 * unlockAll helper method to unlock all shards locked by lockAll
+	 */
+	private void unlockAll() {
+		for (int shard = locks.length - 1; shard >= 0; shard--) {
+			locks[shard].readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> exactSearch(Set<String> queries) {
+		return searchShards(split(queries), true);
+	}
+
+	@Override
+	public List<SearchResult> partialSearch(Set<String> queries) {
+		return searchShards(Collections.nCopies(shards.length, queries), false);
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, int k) {
+		// every location has the same id in all shards, so the words of all shards
+		// are read together in location order and scored with the counts of all
+		// shards
+		List<Set<String>> split = exact ? split(queries) : Collections.nCopies(shards.length, queries);
+		countsLock.readLock().lock();
+		lockAll();
+		try {
+			Bounds current = getBounds();
+			List<TopKSearch.Cursor> cursors = new ArrayList<TopKSearch.Cursor>();
+			for (int shard = 0; shard < shards.length; shard++) {
+				if (!split.get(shard).isEmpty()) {
+					cursors.addAll(shards[shard].cursors(split.get(shard), exact, current.terms[shard], null));
+				}
+			}
+			return TopKSearch.search(cursors, shards[0]::location, doc -> current.words[doc], k);
+		} finally {
+			unlockAll();
+			countsLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * getBounds helper method to get the word counts by location id and the
+	 * bounds of the words of every shard, building them if the index changed since
+	 * they were last built. Must be called with the read locks of the counts and
+	 * all shards.
+	 *
+	 * @return the bounds
+	 */
+	private Bounds getBounds() {
+		Bounds current = bounds;
+		if (current == null) {
+			int[] words = new int[shards[0].locationIds()];
+			for (int doc = 0; doc < words.length; doc++) {
+				// the id of a removed location is skipped, its count does not matter
+				words[doc] = counts.getOrDefault(shards[0].location(doc), 0);
+			}
+			double[][] terms = new double[shards.length][];
+			for (int shard = 0; shard < shards.length; shard++) {
+				terms[shard] = shards[shard].bounds(doc -> words[doc]);
+			}
+			current = new Bounds(terms, words);
+			bounds = current;
+		}
+		return current;
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer) {
+		if (scorer == Scorer.CURRENT) {
+			return search(queries, exact);
+		}
+		List<Set<String>> split = exact ? split(queries) : Collections.nCopies(shards.length, queries);
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		HashMap<String, Double> sums = new HashMap<String, Double>();
+		List<SearchResult> results = new ArrayList<SearchResult>();
+		// the counts are read while scoring, every word is in one shard so the
+		// number of locations of a word is the same as in the whole index
+		countsLock.readLock().lock();
+		try {
+			Scorer.Statistics statistics = new Scorer.Statistics(counts.size(), totalWords);
+			for (List<SearchResult> found : searchEach(split, (shard, words) -> shard.findMatches(words, exact,
+					scorer, statistics, location -> counts.getOrDefault(location, 0)))) {
+				for (SearchResult result : found) {
+					matches.merge(result.getLocation(), result.getCount(), Integer::sum);
+					sums.merge(result.getLocation(), result.getScore(), Double::sum);
+				}
+			}
+			for (var entry : matches.entrySet()) {
+				// skip a location that was removed while searching
+				Integer count = counts.get(entry.getKey());
+				if (count != null) {
+					SearchResult result = new SearchResult(entry.getKey());
+					result.set(entry.getValue(), scorer.total(sums.get(entry.getKey()), entry.getValue(), count));
+					results.add(result);
+				}
+			}
+		} finally {
+			countsLock.readLock().unlock();
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	@Override
+	public List<SearchResult> search(PhraseQuery query, boolean exact) {
+		Set<String> words = query.getWords();
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		collectShards(exact ? split(words) : Collections.nCopies(shards.length, words), exact, matches);
+
+		// the words of a phrase can be in different shards, so their postings are
+		// gathered into one index to match the positions
+		HashSet<String> phrases = new HashSet<String>();
+		for (PhraseQuery.Clause clause : query.getClauses()) {
+			phrases.addAll(clause.getWords());
+		}
+		List<Set<String>> split = split(phrases);
+		InvertedIndex gathered = new InvertedIndex();
+		lockAll();
+		try {
+			for (int shard = 0; shard < shards.length; shard++) {
+				gathered.addWords(shards[shard], split.get(shard), true);
+			}
+			for (SearchResult result : gathered.findMatches(query.withoutWords(), true)) {
+				matches.merge(result.getLocation(), result.getCount(), Integer::sum);
+			}
+		} finally {
+			unlockAll();
+		}
+		return results(matches);
+	}
+
+	@Override
+	public List<SearchResult> search(BooleanQuery query, boolean exact) {
+		// a location must have words from different shards, so the postings of the
+		// words are gathered into one index to intersect them
+		Set<String> words = query.getWords();
+		List<Set<String>> split = exact ? split(words) : Collections.nCopies(shards.length, words);
+		InvertedIndex gathered = new InvertedIndex();
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		lockAll();
+		try {
+			for (int shard = 0; shard < shards.length; shard++) {
+				gathered.addWords(shards[shard], split.get(shard), exact);
+			}
+			for (SearchResult result : gathered.findMatches(query, exact)) {
+				matches.put(result.getLocation(), result.getCount());
+			}
+		} finally {
+			unlockAll();
+		}
+		return results(matches);
+	}
+
+	@Override
+	public Scorer.Statistics statistics() {
+		countsLock.readLock().lock();
+		try {
+			return new Scorer.Statistics(counts.size(), totalWords);
+		} finally {
+			countsLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * split helper method to split exact queries by the shard of the word
+	 *
+	 * @param queries to split
+	 * @return the queries of every shard
+	 */
+	private List<Set<String>> split(Set<String> queries) {
+		List<Set<String>> split = new ArrayList<Set<String>>(shards.length);
+		for (int shard = 0; shard < shards.length; shard++) {
+			split.add(new TreeSet<String>());
+		}
+		for (String query : queries) {
+			split.get(shard(query)).add(query);
+		}
+		return split;
+	}
+
+	/**
+	 * searchShards helper method to search every shard for its queries, and
+	 * combine the matches into sorted search results
+	 *
+	 * @param queries the queries of every shard, shards with no queries are skipped
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @return sorted list of search result objects with all the results
+	 */
+	private List<SearchResult> searchShards(List<Set<String>> queries, boolean exact) {
+		HashMap<String, Integer> matches = new HashMap<String, Integer>();
+		collectShards(queries, exact, matches);
+		return results(matches);
+	}
+
+	/**
+	 * collectShards helper method to search every shard for its queries, and add
+	 * up the matches by location
+	 *
+	 * @param queries the queries of every shard, shards with no queries are skipped
+	 * @param exact   if true, search exactly, if false, search partially
+	 * @param matches to add the number of matches of every location to
+	 */
+	private void collectShards(List<Set<String>> queries, boolean exact, Map<String, Integer> matches) {
+		for (List<SearchResult> found : searchEach(queries, (shard, words) -> shard.findMatches(words, exact))) {
+			for (SearchResult result : found) {
+				matches.merge(result.getLocation(), result.getCount(), Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * searchEach helper method to search every shard that has queries under its
+	 * read lock. When more than one shard has queries and there are threads to
+	 * spare, they are searched at the same time on the common fork join pool, so
+	 * a search takes about as long as the slowest shard and not the sum of all of
+	 * them. With one processor the shards are searched one after another, since
+	 * handing them to another thread only adds time.
+	 *
+	 * @param queries the queries of every shard, shards with no queries are skipped
+	 * @param search  to search a shard for its queries, called from several
+	 *                threads
+	 * @return the results of every shard searched
+	 */
+	private List<List<SearchResult>> searchEach(List<Set<String>> queries,
+			BiFunction<InvertedIndex, Set<String>, List<SearchResult>> search) {
+		IntStream searched = IntStream.range(0, shards.length).filter(shard -> !queries.get(shard).isEmpty());
+		if (ForkJoinPool.getCommonPoolParallelism() > 1
+				&& queries.stream().filter(words -> !words.isEmpty()).count() > 1) {
+			searched = searched.parallel();
+		}
+		return searched.mapToObj(shard -> {
+			locks[shard].readLock().lock();
+			try {
+				return search.apply(shards[shard], queries.get(shard));
+			} finally {
+				locks[shard].readLock().unlock();
+			}
+		}).toList();
+	}
+
+	/**
+	 * results helper method to create sorted search results from the matches of
+	 * every location
+	 *
+	 * @param matches the number of matches by location
+	 * @return sorted list of search result objects
+	 */
+	private List<SearchResult> results(Map<String, Integer> matches) {
+		List<SearchResult> results = new ArrayList<SearchResult>(matches.size());
+		countsLock.readLock().lock();
+		try {
+			for (var entry : matches.entrySet()) {
+				// skip a location that was removed while searching
+				Integer count = counts.get(entry.getKey());
+				if (count != null) {
+					SearchResult result = new SearchResult(entry.getKey());
+					result.update(entry.getValue(), count);
+					results.add(result);
+				}
+			}
+		} finally {
+			countsLock.readLock().unlock();
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Bounds class with the word count of every location id, from the counts of
+	 * all shards, and the upper bounds of the scores of the words of every shard
+	 * with those counts. Never changed.
+	 */
+	private static class Bounds {
+		/**
+		 * terms with the bounds by word id of every shard
+		 */
+		private final double[][] terms;
+
+		/**
+		 * words with the word count by location id
+		 */
+		private final int[] words;
+
+		/**
+		 * Constructor
+		 *
+		 * @param terms the bounds by word id of every shard
+		 * @param words the word count by location id
+		 */
+		private Bounds(double[][] terms, int[] words) {
+			this.terms = terms;
+			this.words = words;
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
+
+/**
+ * StemCache class to remember the stem of every word, so a word that is found
+ * again is not stemmed again. Most of the words of a text are a few common
+ * words, so most words are found in the cache. Every stem is kept once and
+ * shared by all the words with that stem, so the index does not keep a copy of
+ * it for every word found.
+ *
+ * The cache is safe to use from many threads, and every thread stems with its
+ * own {@link SnowballStemmer}. Words are looked up by their characters, so the
+ * reused buffer of a {@link Tokenizer} is only copied into a {@link String}
+ * when the word is not in the cache. When the cache is full, a new word
+ * replaces one that was not found again for a while (CLOCK), so the common
+ * words stay in the cache however many rare words are read.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class StemCache implements Stemmer {
+	/**
+	 * the default maximum number of words
+	 */
+	public static final int DEFAULT = 100_000;
+
+	/**
+	 * the cache for English used by the index builders, the crawler and the
+	 * queries
+	 */
+	public static final StemCache ENGLISH = new StemCache(ALGORITHM.ENGLISH, DEFAULT);
+
+	/**
+	 * the largest number of segments of a table, each with its own lock
+	 */
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * stemmers with the stemmer of every thread
+	 */
+	private final ThreadLocal<SnowballStemmer> stemmers;
+
+	/**
+	 * cache from word to stem
+	 */
+	private final Table cache;
+
+	/**
+	 * stems with every stem in the cache, to share one copy of it
+	 */
+	private final Table stems;
+
+	/**
+	 * hits with the number of words found in the cache
+	 */
+	private final LongAdder hits;
+
+	/**
+	 * misses with the number of words that were stemmed
+	 */
+	private final LongAdder misses;
+
+	/**
+	 * Constructor
+	 *
+	 * @param algorithm of the stemmer
+	 * @param maxSize   the largest number of words in the cache
+	 */
+	public StemCache(ALGORITHM algorithm, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+		}
+		this.stemmers = ThreadLocal.withInitial(() -> new SnowballStemmer(algorithm));
+		this.cache = new Table(maxSize);
+		this.stems = new Table(maxSize);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	/**
+	 * stem method to get the stem of a word
+	 *
+	 * @param word to stem
+	 * @return the stem, a {@link String} shared by all words with that stem
+	 */
+	@Override
+	public String stem(CharSequence word) {
+		int hash = hash(word);
+		String stem = cache.get(word, hash);
+		if (stem != null) {
+			hits.increment();
+			return stem;
+		}
+		misses.increment();
+		CharSequence stemmed = stemmers.get().stem(word);
+		int stemHash = hash(stemmed);
+		stem = stems.get(stemmed, stemHash);
+		if (stem == null) {
+			String copy = stemmed.toString();
+			stem = stems.put(copy, copy, stemHash);
+		}
+		return cache.put(word.toString(), stem, hash);
+	}
+
+	/**
+	 * hash helper method to get the hash of the characters of a word, the same as
+	 * {@link String#hashCode()} with the high bits spread into the low bits
+	 *
+	 * @param word to hash
+	 * @return the hash
+	 */
+	private static int hash(CharSequence word) {
+		int hash = 0;
+		for (int i = 0; i < word.length(); i++) {
+			hash = 31 * hash + word.charAt(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * size method to get the number of words in the cache
+	 *
+	 * @return number of words
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * getHitRate method to get the part of the words that were found in the cache
+	 *
+	 * @return the number of hits divided by the number of words stemmed, or 0 if
+	 *         no words were stemmed
+	 */
+	public double getHitRate() {
+		long hit = hits.sum();
+		long total = hit + misses.sum();
+		return total == 0 ? 0 : (double) hit / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StemCache{size=%d, hits=%d, misses=%d, hitRate=%.3f}", size(), hits.sum(), misses.sum(),
+				getHitRate());
+	}
+
+	/**
+	 * Table class with a bounded map from words to strings, split by hash into
+	 * segments that each have their own lock and a fixed part of the words
+	 */
+	private static class Table {
+		/**
+		 * segments of the table, a power of two
+		 */
+		private final Segment[] segments;
+
+		/**
+		 * Constructor
+		 *
+		 * @param maxSize the largest number of words in the table
+		 */
+		private Table(int maxSize) {
+			int count = Integer.highestOneBit(Math.min(SEGMENTS, maxSize));
+			segments = new Segment[count];
+			for (int i = 0; i < count; i++) {
+				// the first segments take the rest, so the sizes add up to maxSize
+				segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+			}
+		}
+
+		/**
+		 * get method to get the string of a word
+		 *
+		 * @param word to look for
+		 * @param hash of the word
+		 * @return the string, or null if the word is not in the table
+		 */
+		private String get(CharSequence word, int hash) {
+			return segment(hash).get(word, hash);
+		}
+
+		/**
+		 * put method to add a word, unless another thread added it first
+		 *
+		 * @param word  to add
+		 * @param value of the word
+		 * @param hash  of the word
+		 * @return the value in the table, which is the one of the other thread if it
+		 *         added the word first
+		 */
+		private String put(String word, String value, int hash) {
+			return segment(hash).put(word, value, hash);
+		}
+
+		/**
+		 * segment helper method to find the segment of a word. The hash is mixed
+		 * first, since the hashes of short words are small numbers, and the low bits
+		 * choose the bucket.
+		 *
+		 * @param hash of the word
+		 * @return the segment
+		 */
+		private Segment segment(int hash) {
+			return segments[((hash * 0x9E3779B9) >>> 16) & (segments.length - 1)];
+		}
+
+		/**
+		 * size method to get the number of words in the table
+		 *
+		 * @return number of words
+		 */
+		private int size() {
+			int size = 0;
+			for (Segment segment : segments) {
+				size += segment.size();
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Segment class with part of the words of a table, in slots that are reused
+	 * once the segment is full. The clock hand goes around the slots, and replaces
+	 * the first word that was not found since the hand last passed it.
+	 */
+	private static class Segment {
+		/**
+		 * words by slot
+		 */
+		private final String[] words;
+
+		/**
+		 * values of the words by slot
+		 */
+		private final String[] values;
+
+		/**
+		 * hashes of the words by slot
+		 */
+		private final int[] hashes;
+
+		/**
+		 * next with the slot of the next word in the same bucket by slot, or -1
+		 */
+		private final int[] next;
+
+		/**
+		 * found with true for the slots whose word was found since the hand passed
+		 */
+		private final boolean[] found;
+
+		/**
+		 * buckets with the slot of the first word of every bucket, or -1
+		 */
+		private final int[] buckets;
+
+		/**
+		 * size with the number of slots used
+		 */
+		private int size;
+
+		/**
+		 * hand with the next slot the clock checks
+		 */
+		private int hand;
+
+		/**
+		 * Constructor
+		 *
+		 * @param capacity the number of slots
+		 */
+		private Segment(int capacity) {
+			words = new String[capacity];
+			values = new String[capacity];
+			hashes = new int[capacity];
+			next = new int[capacity];
+			found = new boolean[capacity];
+			buckets = new int[Integer.highestOneBit(Math.max(1, capacity)) << 1];
+			Arrays.fill(buckets, -1);
+		}
+
+		/**
+		 * get method to get the value of a word
+		 *
+		 * @param word to look for
+		 * @param hash of the word
+		 * @return the value, or null if the word is not in the segment
+		 */
+		private synchronized String get(CharSequence word, int hash) {
+			for (int slot = buckets[hash & (buckets.length - 1)]; slot >= 0; slot = next[slot]) {
+				if (hashes[slot] == hash && words[slot].contentEquals(word)) {
+					found[slot] = true;
+					return values[slot];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * put method to add a word, replacing the word chosen by the clock if the
+		 * segment is full
+		 *
+		 * @param word  to add
+		 * @param value of the word
+		 * @param hash  of the word
+		 * @return the value in the segment
+		 */
+		private synchronized String put(String word, String value, int hash) {
+			String old = get(word, hash);
+			if (old != null) {
+				return old;
+			}
+			int slot;
+			if (size < words.length) {
+				slot = size++;
+			} else {
+				// a word found since the last turn gets another turn
+				while (found[hand]) {
+					found[hand] = false;
+					hand = (hand + 1) % words.length;
+				}
+				slot = hand;
+				hand = (hand + 1) % words.length;
+				unlink(slot);
+			}
+			int bucket = hash & (buckets.length - 1);
+			words[slot] = word;
+			values[slot] = value;
+			hashes[slot] = hash;
+			found[slot] = false;
+			next[slot] = buckets[bucket];
+			buckets[bucket] = slot;
+			return value;
+		}
+
+		/**
+		 * unlink helper method to take the word of a slot out of its bucket
+		 *
+		 * @param slot of the word
+		 */
+		private void unlink(int slot) {
+			int bucket = hashes[slot] & (buckets.length - 1);
+			if (buckets[bucket] == slot) {
+				buckets[bucket] = next[slot];
+				return;
+			}
+			int previous = buckets[bucket];
+			while (next[previous] != slot) {
+				previous = next[previous];
+			}
+			next[previous] = next[slot];
+		}
+
+		/**
+		 * size method to get the number of words in the segment
+		 *
+		 * @return number of words
+		 */
+		private synchronized int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+
+/**
+ * TermPostings class to hold all the locations a word was found at, as location
+ * ids sorted in increasing order, and the positions of the word in each of
+ * them.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class TermPostings {
+	/**
+	 * initial capacity of the arrays
+	 */
+	private static final int INITIAL_CAPACITY = 2;
+
+	/**
+	 * docs with the sorted location ids
+	 */
+	private int[] docs;
+
+	/**
+	 * positions of the word in each location, parallel to docs
+	 */
+	private PostingList[] positions;
+
+	/**
+	 * size with the number of locations
+	 */
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public TermPostings() {
+		docs = new int[INITIAL_CAPACITY];
+		positions = new PostingList[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * get method to get the positions of the word in a location
+	 *
+	 * @param doc the location id
+	 * @return the positions, or null if the word is not in that location
+	 */
+	public PostingList get(int doc) {
+		int index = indexOf(doc);
+		return index < 0 ? null : positions[index];
+	}
+
+	/**
+	 * getOrAdd method to get the positions of the word in a location, adding an
+	 * empty list if the location is new for this word
+	 *
+	 * @param doc the location id
+	 * @return the positions of the word in that location
+	 */
+	public PostingList getOrAdd(int doc) {
+		int index = indexOf(doc);
+		if (index >= 0) {
+			return positions[index];
+		}
+		PostingList list = new PostingList();
+		insert(-(index + 1), doc, list);
+		return list;
+	}
+
+	/**
+	 * put method to add the positions of the word in a location, merging them if
+	 * the location already has positions. A new location takes over the list
+	 * without copying it, and merging replaces the old list with a new one, so a
+	 * list that was taken over from another index is never changed by a merge.
+	 *
+	 * @param doc  the location id
+	 * @param list of positions to add
+	 * @return the number of positions that were new
+	 */
+	public int put(int doc, PostingList list) {
+		int index = indexOf(doc);
+		if (index < 0) {
+			insert(-(index + 1), doc, list);
+			return list.size();
+		}
+		PostingList merged = new PostingList();
+		merged.addAll(positions[index]);
+		merged.addAll(list);
+		int added = merged.size() - positions[index].size();
+		positions[index] = merged;
+		return added;
+	}
+
+	/**
+	 * size method to get the number of locations of the word
+	 *
+	 * @return number of locations
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * doc method to get the location id at an index
+	 *
+	 * @param index between 0 and size
+	 * @return the location id
+	 */
+	public int doc(int index) {
+		return docs[index];
+	}
+
+	/**
+	 * positions method to get the positions at an index
+	 *
+	 * @param index between 0 and size
+	 * @return the positions of the word in the location at this index
+	 */
+	public PostingList positions(int index) {
+		return positions[index];
+	}
+
+	/**
+	 * indexOf helper method to find a location id. Appending is the common case,
+	 * so the last location is checked before the binary search.
+	 *
+	 * @param doc the location id
+	 * @return index of the location, or (-(insertion point) - 1) if not found
+	 */
+	private int indexOf(int doc) {
+		if (size == 0 || doc > docs[size - 1]) {
+			return -(size + 1);
+		}
+		return Arrays.binarySearch(docs, 0, size, doc);
+	}
+
+	/**
+	 * insert helper method to add a location at an index
+	 *
+	 * @param index where to insert
+	 * @param doc   the location id
+	 * @param list  positions of the word in the location
+	 */
+	private void insert(int index, int doc, PostingList list) {
+		if (size == docs.length) {
+			int capacity = size + (size >> 1) + 1;
+			docs = Arrays.copyOf(docs, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+		System.arraycopy(docs, index, docs, index + 1, size - index);
+		System.arraycopy(positions, index, positions, index + 1, size - index);
+		docs[index] = doc;
+		positions[index] = list;
+		size++;
+	}
+}
@@ -5,6 +5,8 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * @author Noga Gottlieb
@@ -16,18 +18,41 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 	/** The lock used to protect concurrent access to the underlying set. */
 	private final MultiReaderLock lock;
 
+	/**
+	 * version with the number of changes made to the index
+	 */
+	private final AtomicLong version;
+
 	/**
 	 * Constructor
 	 */
 	public ThreadSafeInvertedIndex() {
 		lock = new MultiReaderLock();
+		version = new AtomicLong();
+	}
+
+	@Override
+	public long version() {
+		return version.get();
+	}
+
+	/**
+	 * modified method to count a change of the index. Called after the change is
+	 * made, so results found before it have an older version.
+	 */
+	protected void modified() {
+		version.incrementAndGet();
 	}
 
 	@Override
 	public boolean addIndex(String word, String location, Integer index) {
 		lock.writeLock().lock();
 		try {
-			return super.addIndex(word, location, index);
+			boolean modified = super.addIndex(word, location, index);
+			if (modified) {
+				modified();
+			}
+			return modified;
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -38,6 +63,54 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		lock.writeLock().lock();
 		try {
 			super.addAll(inverted);
+			modified();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void addAll(InvertedIndex inverted, Predicate<String> words) {
+		lock.writeLock().lock();
+		try {
+			super.addAll(inverted, words);
+			modified();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean removeLocation(String location) {
+		lock.writeLock().lock();
+		try {
+			boolean removed = super.removeLocation(location);
+			if (removed) {
+				modified();
+			}
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void replaceLocation(String location, InvertedIndex inverted) {
+		lock.writeLock().lock();
+		try {
+			super.replaceLocation(location, inverted);
+			modified();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void compact() {
+		lock.writeLock().lock();
+		try {
+			super.compact();
+			modified();
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -163,6 +236,16 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public long totalCount() {
+		lock.readLock().lock();
+		try {
+			return super.totalCount();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
 	@Override
 	public int sizeCountLocation(String location) {
 		lock.readLock().lock();
@@ -203,6 +286,36 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public void save(Path path) throws IOException {
+		lock.readLock().lock();
+		try {
+			super.save(path);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		lock.readLock().lock();
+		try {
+			return super.complete(prefix, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public InvertedIndexSnapshot freeze() {
+		lock.readLock().lock();
+		try {
+			return super.freeze();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
 	@Override
 	public List<SearchResult> exactSearch(Set<String> queries) {
 		lock.readLock().lock();
@@ -223,4 +336,54 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, int k) {
+		lock.readLock().lock();
+		try {
+			return super.search(queries, exact, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queries, boolean exact, Scorer scorer) {
+		lock.readLock().lock();
+		try {
+			return super.search(queries, exact, scorer);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> search(PhraseQuery query, boolean exact) {
+		lock.readLock().lock();
+		try {
+			return super.search(query, exact);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> search(BooleanQuery query, boolean exact) {
+		lock.readLock().lock();
+		try {
+			return super.search(query, exact);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Scorer.Statistics statistics() {
+		lock.readLock().lock();
+		try {
+			return super.statistics();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
 }
@@ -11,37 +11,89 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import edu.usfca.cs272.InvertedIndex.SearchResult;
 
 /**
  * QuerySearchThreadSafe class that perform search on the invertedIndax- support
  * multithreaded searching
+ *
+ * The results are kept as futures in a concurrent map, so looking up a query
+ * never blocks other threads. The first thread to add a query searches for it,
+ * and every other thread with the same query waits for the same future instead
+ * of searching again.
  * 
  * @author Noga Gottlieb
  */
 public class ThreadSafeQuerySearch implements QuerySearchInterface {
 	/**
-	 * inverted to hold the invertedIndex data
+	 * inverted to hold the thread safe index to search
 	 */
-	private final ThreadSafeInvertedIndex invertedThreaded;
+	private final IndexSearchInterface invertedThreaded;
 	/**
-	 * searchData to hold the search results information
+	 * searchData to hold the search results information, by query, completed when
+	 * the search is done
 	 */
-	private final TreeMap<String, List<SearchResult>> searchData;
+	private final ConcurrentHashMap<String, CompletableFuture<List<SearchResult>>> searchData;
+	/**
+	 * inFlight with the searches of {@link #search(String, boolean)} and
+	 * {@link #search(String, boolean, int)} that are not done yet, by cache key
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<List<SearchResult>>> inFlight;
 	/**
 	 * threads with the number of threads to use
 	 */
 	private final int threads;
+	/**
+	 * scorer to rank the results with
+	 */
+	private final Scorer scorer;
+	/**
+	 * cache with the results of recent searches, or null to not cache them
+	 */
+	private final QueryCache cache;
 
 	/**
-	 * @param threadSafeInvertedIndex with the invertedIndex data
+	 * @param threadSafeInvertedIndex with the index to search, which must be safe
+	 *                                to search from many threads, such as a
+	 *                                {@link ThreadSafeInvertedIndex} or a frozen
+	 *                                {@link InvertedIndexSnapshot}
 	 * @param threads                 with the number of threads to use
 	 */
-	public ThreadSafeQuerySearch(ThreadSafeInvertedIndex threadSafeInvertedIndex, int threads) {
+	public ThreadSafeQuerySearch(IndexSearchInterface threadSafeInvertedIndex, int threads) {
+		this(threadSafeInvertedIndex, threads, Scorer.CURRENT);
+	}
+
+	/**
+	 * @param threadSafeInvertedIndex with the index to search, which must be safe
+	 *                                to search from many threads
+	 * @param threads                 with the number of threads to use
+	 * @param scorer                  to rank the results with
+	 */
+	public ThreadSafeQuerySearch(IndexSearchInterface threadSafeInvertedIndex, int threads, Scorer scorer) {
+		this(threadSafeInvertedIndex, threads, scorer, null);
+	}
+
+	/**
+	 * @param threadSafeInvertedIndex with the index to search, which must be safe
+	 *                                to search from many threads
+	 * @param threads                 with the number of threads to use
+	 * @param scorer                  to rank the results with
+	 * @param cache                   to keep the results of the single query
+	 *                                searches in, which can be shared by searches
+	 *                                with other scorers, or null to not cache them
+	 */
+	public ThreadSafeQuerySearch(IndexSearchInterface threadSafeInvertedIndex, int threads, Scorer scorer,
+			QueryCache cache) {
 		invertedThreaded = threadSafeInvertedIndex;
-		searchData = new TreeMap<String, List<SearchResult>>();
+		searchData = new ConcurrentHashMap<String, CompletableFuture<List<SearchResult>>>();
+		inFlight = new ConcurrentHashMap<String, CompletableFuture<List<SearchResult>>>();
 		this.threads = threads;
+		this.scorer = scorer;
+		this.cache = cache;
 	}
 
 	/**
@@ -76,20 +128,109 @@ public class ThreadSafeQuerySearch implements QuerySearchInterface {
 	 */
 	@Override
 	public void processQueryLine(String line, boolean exact) {
-		TreeSet<String> query = FileStemmer.uniqueStems(line);
-		if (!query.isEmpty()) {
-			String joined = String.join(" ", query);
-			synchronized (searchData) {
-				if (searchData.containsKey(joined)) {
-					return;
-				}
-				searchData.put(joined, null);
+		ParsedQuery query = ParsedQuery.parse(line);
+		String joined = query.toString();
+		if (!joined.isEmpty()) {
+			CompletableFuture<List<SearchResult>> future = new CompletableFuture<List<SearchResult>>();
+			if (searchData.putIfAbsent(joined, future) == null) {
+				complete(searchData, joined, future, () -> query.search(invertedThreaded, exact, scorer));
 			}
-			List<SearchResult> results = invertedThreaded.search(query, exact);
-			synchronized (searchData) {
-				searchData.put(joined, results);
+		}
+	}
+
+	/**
+	 * complete helper method to search for a query and complete its future. If the
+	 * search fails, even with an error, the future is completed with the failure
+	 * and removed, so the query can be searched again.
+	 *
+	 * @param futures the map the future was added to
+	 * @param key     of the future in the map
+	 * @param future  to complete
+	 * @param search  to search for the query
+	 * @return the results
+	 */
+	private List<SearchResult> complete(ConcurrentHashMap<String, CompletableFuture<List<SearchResult>>> futures,
+			String key, CompletableFuture<List<SearchResult>> future, Supplier<List<SearchResult>> search) {
+		try {
+			List<SearchResult> results = search.get();
+			future.complete(results);
+			return results;
+		} catch (Throwable e) {
+			// errors too, or every thread waiting for the future would wait forever
+			futures.remove(key, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * search method to search for a single query line without keeping the results
+	 * in searchData. The results are taken from the cache if they were found in
+	 * the same version of the index.
+	 *
+	 * @param line  of query to search for
+	 * @param exact if true, process exact search, if false, process partial search
+	 * @return unmodifiable list of the results
+	 */
+	public List<SearchResult> search(String line, boolean exact) {
+		ParsedQuery query = ParsedQuery.parse(line);
+		if (query.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return cached(scorer + (exact ? " exact " : " partial ") + query,
+				() -> query.search(invertedThreaded, exact, scorer));
+	}
+
+	/**
+	 * search method to search for only the best results of a single query line,
+	 * like {@link #search(String, boolean)}, such as the first page of results.
+	 * A normal query ranked by the current score does not create a result for
+	 * every matching location.
+	 *
+	 * @param line  of query to search for
+	 * @param exact if true, process exact search, if false, process partial search
+	 * @param k     the maximum number of results
+	 * @return unmodifiable list of the first k results
+	 */
+	public List<SearchResult> search(String line, boolean exact, int k) {
+		ParsedQuery query = ParsedQuery.parse(line);
+		if (query.isEmpty() || k <= 0) {
+			return Collections.emptyList();
+		}
+		return cached(scorer + " first " + k + (exact ? " exact " : " partial ") + query,
+				() -> query.search(invertedThreaded, exact, scorer, k));
+	}
+
+	/**
+	 * cached helper method to get the results of a search from the cache if they
+	 * were found in the same version of the index, or else search once for all
+	 * threads with the same search
+	 *
+	 * @param key    of the results in the cache
+	 * @param search to search if the results are not in the cache
+	 * @return unmodifiable list of the results
+	 */
+	private List<SearchResult> cached(String key, Supplier<List<SearchResult>> search) {
+		// the version is read before searching, so a change during the search makes
+		// the results old
+		long version = invertedThreaded.version();
+		List<SearchResult> results = cache == null ? null : cache.get(key, version);
+		if (results == null) {
+			// the same query in the same version of the index is only searched once
+			String flight = version + " " + key;
+			CompletableFuture<List<SearchResult>> future = new CompletableFuture<List<SearchResult>>();
+			CompletableFuture<List<SearchResult>> running = inFlight.putIfAbsent(flight, future);
+			if (running != null) {
+				results = running.join();
+			} else {
+				results = complete(inFlight, flight, future, search);
+				if (cache != null) {
+					cache.put(key, version, results);
+				}
+				inFlight.remove(flight, future);
 			}
 		}
+		return Collections.unmodifiableList(results);
 	}
 
 	/**
@@ -100,9 +241,21 @@ public class ThreadSafeQuerySearch implements QuerySearchInterface {
 	 */
 	@Override
 	public void writeJson(Path output) throws IOException {
-		synchronized (searchData) {
-			JsonWriter.writeSearch(searchData, output);
+		JsonWriter.writeSearch(sorted(), output);
+	}
+
+	/**
+	 * sorted helper method to get the results of every query sorted by query,
+	 * waiting for the searches that are not done yet
+	 *
+	 * @return sorted map from query to results
+	 */
+	private TreeMap<String, List<SearchResult>> sorted() {
+		TreeMap<String, List<SearchResult>> sorted = new TreeMap<String, List<SearchResult>>();
+		for (var entry : searchData.entrySet()) {
+			sorted.put(entry.getKey(), entry.getValue().join());
 		}
+		return sorted;
 	}
 
 	/**
@@ -112,9 +265,7 @@ public class ThreadSafeQuerySearch implements QuerySearchInterface {
 	 */
 	@Override
 	public Set<String> getQueryLines() {
-		synchronized (searchData) {
-			return searchData.keySet();
-		}
+		return Collections.unmodifiableSet(new TreeSet<String>(searchData.keySet()));
 	}
 
 	/**
@@ -126,14 +277,12 @@ public class ThreadSafeQuerySearch implements QuerySearchInterface {
 	 */
 	@Override
 	public List<SearchResult> getResults(String queryLine) {
-		TreeSet<String> query = FileStemmer.uniqueStems(queryLine);
-		if (!query.isEmpty()) {
-			String joined = String.join(" ", query);
-			synchronized (searchData) {
-				var results = searchData.get(joined);
-				if (results != null) {
-					return Collections.unmodifiableList(results);
-				}
+		String joined = ParsedQuery.parse(queryLine).toString();
+		if (!joined.isEmpty()) {
+			// waits for the search if another thread is still searching for it
+			var results = searchData.get(joined);
+			if (results != null) {
+				return Collections.unmodifiableList(results.join());
 			}
 		}
 		return Collections.emptyList();
@@ -141,9 +290,7 @@ public class ThreadSafeQuerySearch implements QuerySearchInterface {
 
 	@Override
 	public String toString() {
-		synchronized (searchData) {
-			return searchData.toString();
-		}
+		return sorted().toString();
 	}
 
 	/**
@@ -0,0 +1,181 @@
+package edu.usfca.cs272;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Tokenizer class to split text into clean words in one pass, with the same
+ * words as {@link FileStemmer#parse(String)}. The words are given to a callback
+ * in a reused buffer, so no array or copy of the whole text is created.
+ *
+ * The text is read one part between spaces at a time. A part with only ASCII
+ * characters is cleaned and lower cased directly. Any other part is normalized,
+ * cleaned and lower cased like in {@link FileStemmer#clean(String)}, so the
+ * words are always the same.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class Tokenizer {
+	/**
+	 * TokenConsumer interface to get the words found and their positions
+	 */
+	@FunctionalInterface
+	public interface TokenConsumer {
+		/**
+		 * accept method to get a word
+		 *
+		 * @param token    the word, in a buffer that is reused after this call
+		 * @param position the position of the word
+		 */
+		public void accept(CharSequence token, int position);
+	}
+
+	/**
+	 * Private constructor, the class only has static methods
+	 */
+	private Tokenizer() {
+	}
+
+	/**
+	 * tokenize method to find the clean words of a text
+	 *
+	 * @param text     to split into words
+	 * @param position the position before the first word
+	 * @param tokens   to give every word and its position to, the positions
+	 *                 start from the one after position
+	 * @return the position of the last word, or position if there are no words
+	 */
+	public static int tokenize(CharSequence text, int position, TokenConsumer tokens) {
+		// these languages lower case some letters by the letters around them
+		String language = Locale.getDefault().getLanguage();
+		if (language.equals("tr") || language.equals("az") || language.equals("lt")) {
+			return parse(text, position, 0, tokens);
+		}
+		int first = position;
+		StringBuilder token = new StringBuilder();
+		int length = text.length();
+		// split keeps an empty first word if the text starts with a space that
+		// strip does not remove, such as a non-breaking space
+		boolean found = false;
+		boolean stripping = true;
+		boolean empty = false;
+
+		int i = 0;
+		while (i < length) {
+			int c = Character.codePointAt(text, i);
+			if (isSpace(c)) {
+				if (stripping && !Character.isWhitespace(c)) {
+					stripping = false;
+					empty = true;
+				}
+				i += Character.charCount(c);
+				continue;
+			}
+
+			int start = i;
+			boolean simple = true;
+			token.setLength(0);
+			while (i < length) {
+				char ch = text.charAt(i);
+				if (ch < 0x80) {
+					if ((ch >= 0x09 && ch <= 0x0D) || ch == ' ') {
+						break;
+					}
+					if (simple && ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z'))) {
+						token.append((char) (ch | 0x20));
+					}
+					i++;
+				} else {
+					int cp = Character.codePointAt(text, i);
+					if (isSpace(cp)) {
+						break;
+					}
+					simple = false;
+					i += Character.charCount(cp);
+				}
+			}
+			if (!simple && !clean(text.subSequence(start, i), token)) {
+				return parse(text, first, position - first, tokens);
+			}
+
+			if (token.length() > 0) {
+				stripping = false;
+				if (!found && empty) {
+					tokens.accept("", ++position);
+				}
+				found = true;
+				tokens.accept(token, ++position);
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * parse helper method to find the words with {@link FileStemmer#parse(String)}
+	 * instead, when a word is lower cased by the words around it
+	 *
+	 * @param text     to split into words
+	 * @param position the position before the first word
+	 * @param skip     the number of words already given
+	 * @param tokens   to give every other word and its position to
+	 * @return the position of the last word
+	 */
+	private static int parse(CharSequence text, int position, int skip, TokenConsumer tokens) {
+		String[] words = FileStemmer.parse(text.toString());
+		position += skip;
+		for (int i = skip; i < words.length; i++) {
+			tokens.accept(words[i], ++position);
+		}
+		return position;
+	}
+
+	/**
+	 * clean helper method to clean a part of the text with no spaces, like
+	 * {@link FileStemmer#clean(String)}
+	 *
+	 * @param part  of the text
+	 * @param token to put the clean word in
+	 * @return false if the word has a capital sigma, which is lower cased by the
+	 *         text around it, so the word is not cleaned
+	 */
+	private static boolean clean(CharSequence part, StringBuilder token) {
+		String normalized = Normalizer.normalize(part, Normalizer.Form.NFD);
+		token.setLength(0);
+		for (int i = 0; i < normalized.length();) {
+			int c = normalized.codePointAt(i);
+			if (c == '\u03A3') {
+				return false;
+			}
+			if (Character.isAlphabetic(c)) {
+				token.appendCodePoint(c);
+			}
+			i += Character.charCount(c);
+		}
+		for (int i = 0; i < token.length(); i++) {
+			if (token.charAt(i) >= 0x80 || Character.isUpperCase(token.charAt(i))) {
+				String lower = token.toString().toLowerCase();
+				token.setLength(0);
+				token.append(lower);
+				return true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * isSpace helper method to check if a character is a space, the same as
+	 * {@code \p{Space}} in {@link FileStemmer#SPLIT_REGEX}
+	 *
+	 * @param c the code point
+	 * @return true if the character is a space
+	 */
+	private static boolean isSpace(int c) {
+		if (c < 0x80) {
+			return (c >= 0x09 && c <= 0x0D) || c == ' ';
+		}
+		int type = Character.getType(c);
+		return c == 0x85 || type == Character.SPACE_SEPARATOR || type == Character.LINE_SEPARATOR
+				|| type == Character.PARAGRAPH_SEPARATOR;
+	}
+}
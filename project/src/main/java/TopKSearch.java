@@ -0,0 +1,290 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+import edu.usfca.cs272.InvertedIndex.SearchResult;
+
+/**
+ * TopKSearch class to find only the best search results, without creating and
+ * sorting a search result for every matching location. The postings of the
+ * query words are read one location at a time, and the best results found so
+ * far are kept in a bounded heap.
+ *
+ * Every word has an upper bound of its score, the largest number of positions
+ * divided by the word count of any of its locations. Once the heap is full, the
+ * words whose bounds add up to less than the worst result in the heap can not
+ * make a location good enough on their own, so locations are only taken from the
+ * other words, and the rest are only looked up for those locations (MaxScore).
+ * A location is dropped as soon as its score so far and the bounds of the words
+ * not read yet are less than the worst result.
+ *
+ * The results and their order are the same as the first results of a full
+ * search.
+ *
+ * @author Noga Gottlieb
+ *
+ */
+public class TopKSearch {
+	/**
+	 * slack to make the bounds a little larger, so a location is never dropped
+	 * because of rounding errors when adding scores
+	 */
+	private static final double SLACK = 1 + 1e-9;
+
+	/**
+	 * the largest number of words read one location at a time. A partial search
+	 * can match hundreds of words, and then adding up the counts of every word
+	 * into an array is faster than keeping the words in a heap.
+	 */
+	private static final int MAX_CURSORS = 8;
+
+	/**
+	 * Cursor class to read the postings of a word in increasing location order
+	 */
+	public abstract static class Cursor {
+		/**
+		 * bound with the upper bound of the score of the word in any location
+		 */
+		private final double bound;
+
+		/**
+		 * index of the current posting
+		 */
+		private int index;
+
+		/**
+		 * end with the index after the last posting
+		 */
+		private final int end;
+
+		/**
+		 * current with the location id of the current posting, or
+		 * {@link Integer#MAX_VALUE} if there are no more postings
+		 */
+		private int current;
+
+		/**
+		 * rank of the word by its bound among the words of the search
+		 */
+		private int rank;
+
+		/**
+		 * Constructor
+		 *
+		 * @param start index of the first posting
+		 * @param end   index after the last posting
+		 * @param bound upper bound of the score of the word in any location
+		 */
+		protected Cursor(int start, int end, double bound) {
+			this.index = start;
+			this.end = end;
+			this.bound = bound;
+		}
+
+		/**
+		 * doc method to get the location id of a posting
+		 *
+		 * @param index of the posting
+		 * @return the location id
+		 */
+		protected abstract int doc(int index);
+
+		/**
+		 * frequency method to get the number of positions of a posting
+		 *
+		 * @param index of the posting
+		 * @return the number of positions
+		 */
+		protected abstract int frequency(int index);
+
+		/**
+		 * skipped method to check if a location should be skipped, like a removed
+		 * location
+		 *
+		 * @param doc the location id
+		 * @return true if the location is skipped
+		 */
+		protected boolean skipped(int doc) {
+			return false;
+		}
+
+		/**
+		 * next helper method to move to the next posting
+		 */
+		private void next() {
+			index++;
+			while (index < end && skipped(doc(index))) {
+				index++;
+			}
+			current = index < end ? doc(index) : Integer.MAX_VALUE;
+		}
+
+		/**
+		 * advance helper method to move to the first posting with a location id that
+		 * is not smaller than a target. Gallops forward and then searches, since the
+		 * target is often far ahead for the words that are only looked up.
+		 *
+		 * @param target the location id
+		 */
+		private void advance(int target) {
+			if (index < end && doc(index) < target) {
+				int low = index;
+				int step = 1;
+				while (low + step < end && doc(low + step) < target) {
+					low += step;
+					step <<= 1;
+				}
+				int high = Math.min(low + step, end);
+				while (low + 1 < high) {
+					int middle = (low + high) >>> 1;
+					if (doc(middle) < target) {
+						low = middle;
+					} else {
+						high = middle;
+					}
+				}
+				index = high;
+			}
+			while (index < end && skipped(doc(index))) {
+				index++;
+			}
+			current = index < end ? doc(index) : Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * search method to find the best results of a search
+	 *
+	 * @param cursors   with the postings of every query word, the same word can be
+	 *                  read more than once
+	 * @param locations to get a location by its id
+	 * @param words     to get the word count of a location by its id
+	 * @param k         the maximum number of results
+	 * @return sorted list of the best k search results
+	 */
+	public static List<SearchResult> search(List<? extends Cursor> cursors, IntFunction<String> locations,
+			IntUnaryOperator words, int k) {
+		if (k <= 0 || cursors.isEmpty()) {
+			return new ArrayList<SearchResult>();
+		}
+		if (cursors.size() > MAX_CURSORS) {
+			return accumulate(cursors, locations, words, k);
+		}
+		Cursor[] sorted = cursors.toArray(new Cursor[0]);
+		Arrays.sort(sorted, Comparator.comparingDouble((Cursor cursor) -> cursor.bound));
+		// the words that locations are taken from, by their current location id
+		PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(sorted.length,
+				Comparator.comparingInt((Cursor cursor) -> cursor.current));
+		// bounds[i] is the sum of the bounds of the first i + 1 words
+		double[] bounds = new double[sorted.length];
+		double sum = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i].rank = i;
+			sorted[i].advance(Integer.MIN_VALUE);
+			if (sorted[i].current != Integer.MAX_VALUE) {
+				queue.add(sorted[i]);
+			}
+			sum += sorted[i].bound;
+			bounds[i] = sum;
+		}
+
+		// the head of the heap is the worst of the best results
+		PriorityQueue<SearchResult> best = new PriorityQueue<SearchResult>(k + 1, Collections.reverseOrder());
+		double threshold = 0;
+		// the words before this rank are only looked up
+		int essential = 0;
+		while (!queue.isEmpty()) {
+			int doc = queue.peek().current;
+			int count = 0;
+			while (!queue.isEmpty() && queue.peek().current == doc) {
+				Cursor cursor = queue.poll();
+				count += cursor.frequency(cursor.index);
+				cursor.next();
+				if (cursor.current != Integer.MAX_VALUE) {
+					queue.add(cursor);
+				}
+			}
+			int length = words.applyAsInt(doc);
+			boolean dropped = false;
+			for (int i = essential - 1; i >= 0; i--) {
+				if (((double) count / length + bounds[i]) * SLACK < threshold) {
+					dropped = true;
+					break;
+				}
+				sorted[i].advance(doc);
+				if (sorted[i].current == doc) {
+					count += sorted[i].frequency(sorted[i].index);
+				}
+			}
+			if (dropped) {
+				continue;
+			}
+
+			SearchResult result = new SearchResult(locations.apply(doc));
+			result.update(count, length);
+			if (best.size() < k) {
+				best.add(result);
+			} else if (result.compareTo(best.peek()) < 0) {
+				best.poll();
+				best.add(result);
+			} else {
+				continue;
+			}
+			if (best.size() == k) {
+				threshold = best.peek().getScore();
+				int previous = essential;
+				while (essential < sorted.length && bounds[essential] * SLACK < threshold) {
+					essential++;
+				}
+				if (essential > previous) {
+					int first = essential;
+					queue.removeIf(cursor -> cursor.rank < first);
+				}
+			}
+		}
+
+		List<SearchResult> results = new ArrayList<SearchResult>(best);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * accumulate helper method to find the best results by adding up the counts of
+	 * every word, see {@link ScoreAccumulator}
+	 *
+	 * @param cursors   with the postings of every query word
+	 * @param locations to get a location by its id
+	 * @param words     to get the word count of a location by its id
+	 * @param k         the maximum number of results
+	 * @return sorted list of the best k search results
+	 */
+	private static List<SearchResult> accumulate(List<? extends Cursor> cursors, IntFunction<String> locations,
+			IntUnaryOperator words, int k) {
+		ScoreAccumulator accumulator = ScoreAccumulator.get();
+		for (Cursor cursor : cursors) {
+			for (cursor.advance(Integer.MIN_VALUE); cursor.current != Integer.MAX_VALUE; cursor.next()) {
+				accumulator.add(cursor.current, cursor.frequency(cursor.index));
+			}
+		}
+		return accumulator.top(k, locations, words);
+	}
+
+	/**
+	 * first method to get the first results of a full search, for indexes that do
+	 * not have bounds of their words
+	 *
+	 * @param results sorted list of all search results
+	 * @param k       the maximum number of results
+	 * @return the first k results
+	 */
+	public static List<SearchResult> first(List<SearchResult> results, int k) {
+		return results.size() <= k ? results : new ArrayList<SearchResult>(results.subList(0, Math.max(k, 0)));
+	}
+}
@@ -0,0 +1,52 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Watch Servlet class to show the metrics of the {@link IndexWatcher} as JSON,
+ * such as the number of files indexed and the indexing lag.
+ *
+ *
+ * @author Noga Gottlieb
+ */
+public class WatchServlet extends HttpServlet {
+	/** Class version for serialization, in [YEAR][TERM] format (unused). */
+	private static final long serialVersionUID = 202301;
+
+	/** The logger to use for this servlet. */
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * watcher to get the metrics from
+	 */
+	private final transient IndexWatcher watcher;
+
+	/**
+	 * Initializes this watch servlet
+	 * 
+	 * @param watcher to get the metrics from
+	 */
+	public WatchServlet(IndexWatcher watcher) {
+		super();
+		this.watcher = watcher;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		log.info("{} handling: {}", this.hashCode(), request);
+		response.setContentType("application/json");
+		PrintWriter out = response.getWriter();
+		out.println(JsonWriter.writeObject(watcher.getMetrics()));
+		out.flush();
+	}
+}
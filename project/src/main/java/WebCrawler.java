@@ -4,14 +4,10 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
-
 /**
  * @author Noga Gottlieb WebCrawler class to take a link, process it, and build
  *         inverted index
@@ -102,28 +98,19 @@ public class WebCrawler {
 			URL cleanedUrl = LinkFinder.normalize(url);
 			htmlString = HtmlFetcher.fetch(cleanedUrl, 3);
 			if (htmlString != null) {
-				String html = HtmlCleaner.stripBlockElements(htmlString);
-				ArrayList<URL> links = LinkFinder.listUrls(cleanedUrl, html);
-				if (!links.isEmpty()) {
-					synchronized (visited) {
-						for (URL link : links) {
-							if (!visited.contains(link.toString()) && count < seeds) {
-								visited.add(link.toString());
-								count++;
-								tasks.execute(new Task(link.toString(), invertedIndex));
+				PageProcessor.process(cleanedUrl, htmlString, StemCache.ENGLISH, links -> {
+					if (!links.isEmpty()) {
+						synchronized (visited) {
+							for (URL link : links) {
+								if (!visited.contains(link.toString()) && count < seeds) {
+									visited.add(link.toString());
+									count++;
+									tasks.execute(new Task(link.toString(), invertedIndex));
+								}
 							}
 						}
 					}
-				}
-				String stripHtml = HtmlCleaner.stripHtml(htmlString);
-				int countIndex = 0;
-				SnowballStemmer stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
-				String[] splitted = FileStemmer.parse(stripHtml);
-				for (String word : splitted) {
-					countIndex++;
-					word = stemmer.stem(word).toString();
-					index.addIndex(word, seed, countIndex);
-				}
+				}, (stem, position) -> index.addIndex(stem, seed, position));
 			}
 		}
 	}